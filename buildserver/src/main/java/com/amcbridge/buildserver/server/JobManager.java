@@ -5,22 +5,14 @@ import com.amcbridge.buildserver.builder.BuilderManager;
 import com.amcbridge.jenkins.plugins.serialization.Config;
 import com.amcbridge.jenkins.plugins.serialization.Job;
 import com.amcbridge.jenkins.plugins.serialization.Project;
+import com.amcbridge.jenkins.plugins.serialization.XmlUtils;
 import com.thoughtworks.xstream.XStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.File;
-import java.io.StringWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -42,13 +34,8 @@ public class JobManager {
     }
 
     private void loadJob() throws Exception {
-        DocumentBuilderFactory docBF = DocumentBuilderFactory.newInstance();
-        DocumentBuilder bldDoc;
-        Document docProject;
-
-        bldDoc = docBF.newDocumentBuilder();
         File config = buildServer.getConfigFile();
-        docProject = bldDoc.parse(config);
+        Document docProject = XmlUtils.parse(config);
         Node jobNode = docProject.getDocumentElement();
         if (jobNode == null) {
             throw new Exception("Config file found, but getting job config failed");
@@ -98,19 +85,8 @@ public class JobManager {
 
     private static String documentToXML(Node node) {
         String result = "";
-        TransformerFactory transformerFactory;
-        Transformer transformer;
-        DOMSource source;
-        StreamResult sr;
-
-        try (Writer writer = new StringWriter()) {
-            transformerFactory = TransformerFactory.newInstance();
-            transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            source = new DOMSource(node);
-            sr = new StreamResult(writer);
-            transformer.transform(source, sr);
-            result = writer.toString();
+        try {
+            result = XmlUtils.toXml(node);
         } catch (Exception e) {
             logger.error("Error parsing xml file", e);
         }
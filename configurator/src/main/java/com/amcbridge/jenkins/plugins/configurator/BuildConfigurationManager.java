@@ -1,9 +1,19 @@
 package com.amcbridge.jenkins.plugins.configurator;
 
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangeModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangesPageModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationPageModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationRevisionModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+import com.amcbridge.jenkins.plugins.models.DashboardRowModel;
+import com.amcbridge.jenkins.plugins.models.JobGenerationModel;
 import com.amcbridge.jenkins.plugins.models.UserAccessModel;
+import com.amcbridge.jenkins.plugins.enums.ConfigurationChangeType;
+import com.amcbridge.jenkins.plugins.enums.ConfigurationSortField;
 import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
 import com.amcbridge.jenkins.plugins.enums.MessageDescription;
+import com.amcbridge.jenkins.plugins.enums.SearchField;
 import com.amcbridge.jenkins.plugins.exceptions.JenkinsInstanceNotFoundException;
 import com.amcbridge.jenkins.plugins.xstreamelements.SCM;
 import com.amcbridge.jenkins.plugins.xstreamelements.SCMLoader;
@@ -11,6 +21,7 @@ import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
 import com.amcbridge.jenkins.plugins.messenger.ConfigurationStatusMessage;
 import com.amcbridge.jenkins.plugins.messenger.MailSender;
 import com.amcbridge.jenkins.plugins.serialization.CredentialItem;
+import com.amcbridge.jenkins.plugins.serialization.XmlUtils;
 import com.amcbridge.jenkins.plugins.xstreamelements.ScriptType;
 import com.amcbridge.jenkins.plugins.xstreamelements.ScriptTypeLoader;
 import hudson.XmlFile;
@@ -23,7 +34,6 @@ import hudson.util.Iterators;
 import jenkins.model.Jenkins;
 import jenkins.model.JenkinsLocationConfiguration;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.Ancestor;
 import org.kohsuke.stapler.Stapler;
@@ -37,28 +47,33 @@ import org.xml.sax.SAXException;
 import javax.mail.MessagingException;
 import javax.servlet.ServletException;
 import javax.xml.bind.JAXBException;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
 
 public class BuildConfigurationManager {
 
-    private static final String CONFIG_FILE_NAME = "config.xml";
+    static final String CONFIG_FILE_NAME = "config.xml";
     public static final String DATE_FORMAT = "MM/dd/yyyy";
     public static final String ENCODING = "UTF-8";
-    private static final String CONFIG_JOB_FILE_NAME = "JobConfig.xml";
     private static final String BUILD_CONFIGURATOR_DIRECTORY_NAME = "/plugins/BuildConfiguration";
     private static final String CONTENT_FOLDER = "userContent";
     public static final String STRING_EMPTY = "";
     private static final MailSender mail = new MailSender();
     private static final Logger logger = LoggerFactory.getLogger(BuildConfigurationManager.class);
+    private static final ConfigurationLocks locks = new ConfigurationLocks();
     private static SCMLoader scmLoader;
     private static final String DEFAULT_CREDENTIALS_PROPERTIES_FILE_NAME = "credentialsDefaults.properties";
     private static final String CREDENTIALS_PROPERTY_NAME = "defaultCredentials";
@@ -81,46 +96,69 @@ public class BuildConfigurationManager {
         }
     }
 
-    private static File getConfigFileFor(String id) throws JenkinsInstanceNotFoundException {
-        return new File(new File(getRootDir(), id), CONFIG_FILE_NAME);
+    static File getConfigFileFor(String id) throws JenkinsInstanceNotFoundException {
+        String path = StringUtils.strip(id, "/");
+        int separator = path.indexOf('/');
+        if (separator < 0) {
+            return new File(getConfigDirectory(path), CONFIG_FILE_NAME);
+        }
+        File directory = new File(getConfigDirectory(path.substring(0, separator)), path.substring(separator + 1));
+        return new File(directory, CONFIG_FILE_NAME);
     }
 
-
-    public static File getFileToCreateJob() throws JenkinsInstanceNotFoundException {
-        return new File(getRootDir() + "/" + CONFIG_JOB_FILE_NAME);
+    static File getConfigDirectory(String name) throws JenkinsInstanceNotFoundException {
+        return ConfigurationLayout.getInstance().getDirectory(name);
     }
 
-    private static File getRootDir() throws JenkinsInstanceNotFoundException {
+
+    static File getRootDir() throws JenkinsInstanceNotFoundException {
         return new File(BuildConfigurationManager.getJenkins().getRootDir(),
                 BUILD_CONFIGURATOR_DIRECTORY_NAME);
     }
 
-    private static String getRootDirectory() throws JenkinsInstanceNotFoundException {
-        return BuildConfigurationManager.getJenkins().getRootDir() + "/"
-                + BUILD_CONFIGURATOR_DIRECTORY_NAME;
-    }
-
     private static String getUserContentFolder() throws JenkinsInstanceNotFoundException {
         return BuildConfigurationManager.getJenkins().getRootDir() + "/" + CONTENT_FOLDER;
     }
 
-    static void save(BuildConfigurationModel config, boolean isDiff) throws IOException {
+    /**
+     * Saves the configuration and records it as a new revision.
+     *
+     * @param isApproved whether the saved configuration becomes the last approved one
+     */
+    static void save(BuildConfigurationModel config, boolean isApproved) throws IOException {
         if (config.getProjectName().isEmpty()) {
             deleteFiles(config.getScripts(), getUserContentFolder());
             return;
         }
 
-        String projectPath = isDiff ? config.getProjectName() + "/diff/" : config.getProjectName();
-
-        File checkFile = new File(getRootDirectory() + "/" + projectPath);
-        if (!checkFile.exists()) {
-            if(!checkFile.mkdirs()) {
-                throw new IOException("Unable to create path:" + checkFile.getPath());
+        ConfigurationRegistry registry = ConfigurationRegistry.getInstance();
+        Lock lock = lockConfiguration(config.getProjectName());
+        try {
+            // resolved under the lock, the layout migration moves the directory while holding it
+            File checkFile = getConfigDirectory(config.getProjectName());
+            if (!checkFile.exists()) {
+                if(!checkFile.mkdirs()) {
+                    throw new IOException("Unable to create path:" + checkFile.getPath());
+                }
+            }
+            BuildConfigurationModel previous = registry.get(config.getProjectName());
+            ConfigurationRevisionStore revisions = ConfigurationRevisionStore.getInstance();
+            boolean changed = revisions.append(previous, config, isApproved);
+            try {
+                ConfigurationWriter.getInstance().write(getConfigFileFor("/" + config.getProjectName()), config);
+            } catch (IOException e) {
+                revisions.discard(config.getProjectName());
+                throw e;
             }
+            registry.put(config);
+            ConfigurationChangeType change = ConfigurationChangeType.between(
+                    previous != null ? previous.getState() : null, config.getState());
+            if (changed || change != ConfigurationChangeType.UPDATE) {
+                ConfigurationJournal.getInstance().append(config.getProjectName(), change);
+            }
+        } finally {
+            lock.unlock();
         }
-
-        XmlFile fileWriter = getConfigFile(projectPath);
-        fileWriter.write(config);
     }
 
     private static XmlFile getConfigFile(String nameProject) throws JenkinsInstanceNotFoundException {
@@ -128,6 +166,17 @@ public class BuildConfigurationManager {
     }
 
     public static BuildConfigurationModel load(String nameProject) throws IOException {
+        if (isNestedPath(nameProject)) {
+            return loadFromDisk(nameProject);
+        }
+        BuildConfigurationModel config = ConfigurationRegistry.getInstance().get(nameProject);
+        if (config == null) {
+            return new BuildConfigurationModel();
+        }
+        return ConfigurationRegistry.copy(config);
+    }
+
+    private static BuildConfigurationModel loadFromDisk(String nameProject) throws IOException {
         BuildConfigurationModel result = new BuildConfigurationModel();
         XmlFile config = getConfigFile(nameProject);
 
@@ -137,23 +186,122 @@ public class BuildConfigurationManager {
         return result;
     }
 
-    static List<BuildConfigurationModel> loadAllConfigurations()
-            throws IOException {
-        List<BuildConfigurationModel> configs = new ArrayList<>();
-        File file = new File(getRootDirectory());
-        if (!file.exists() || file.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY) == null) {
-            return new LinkedList<>();
+    private static boolean isNestedPath(String nameProject) {
+        return nameProject.indexOf('/') >= 0;
+    }
+
+    /**
+     * Summaries of the configurations visible to the current user, ordered by name.
+     */
+    static List<ConfigurationSummaryModel> loadAllSummaries() throws IOException {
+        ConfigurationRegistry registry = ConfigurationRegistry.getInstance();
+        if (isCurrentUserAdministrator()) {
+            return registry.getSummaries();
+        }
+        Set<String> names = registry.getAccessIndex().getAccessibleNames(getCurrentUserID());
+        List<ConfigurationSummaryModel> summaries = new ArrayList<>(names.size());
+        for (String name : names) {
+            ConfigurationSummaryModel summary = registry.getSummary(name);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Names of the visible configurations having the value in the field, in alphabetical order.
+     */
+    static List<String> findConfigurations(SearchField field, String value) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (ConfigurationSummaryModel config : loadSummaries(Collections.singletonMap(field, value))) {
+            result.add(config.getProjectName());
         }
-        File[] directories = file.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY);
-        if (directories != null) {
-            for (File directory : directories) {
-                File configFile = new File(directory, "config.xml");
-                if (isCurrentUserHasAccess(directory.getName()) && configFile.exists()) {
-                    configs.add(load(directory.getName()));
+        return result;
+    }
+
+    /**
+     * Summaries of the visible configurations matching all the given field values, in alphabetical order.
+     */
+    private static List<ConfigurationSummaryModel> loadSummaries(Map<SearchField, String> filters) throws IOException {
+        ConfigurationRegistry registry = ConfigurationRegistry.getInstance();
+        boolean isUserAdmin = isCurrentUserAdministrator();
+        String userId = getCurrentUserID();
+        ConfigurationAccessIndex accessIndex = registry.getAccessIndex();
+        List<String> names = registry.getSearchIndex().find(filters);
+        List<ConfigurationSummaryModel> summaries = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (!isUserAdmin && !accessIndex.hasAccess(name, userId)) {
+                continue;
+            }
+            ConfigurationSummaryModel summary = registry.getSummary(name);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Filters and sorts the visible configurations in memory and builds rows only for the requested page.
+     * SCM, builder and node filters are looked up in the search index instead of scanning every configuration.
+     */
+    static ConfigurationPageModel loadConfigurationPage(ConfigurationQuery query) throws IOException {
+        Map<SearchField, String> searchFilters = query.getSearchFilters();
+        List<ConfigurationSummaryModel> configs = searchFilters.isEmpty()
+                ? loadAllSummaries() : loadSummaries(searchFilters);
+        if (query.getState() != null) {
+            List<ConfigurationSummaryModel> matching = new ArrayList<>();
+            for (ConfigurationSummaryModel config : configs) {
+                if (query.matches(config)) {
+                    matching.add(config);
                 }
             }
+            configs = matching;
+        }
+        Map<String, String> creatorNames = new HashMap<>();
+        if (query.getSortField() == ConfigurationSortField.CREATOR) {
+            for (ConfigurationSummaryModel config : configs) {
+                getCreatorName(config, creatorNames);
+            }
+        }
+        query.sort(configs, creatorNames);
+        int from = Math.min(query.getOffset(), configs.size());
+        int to = Math.min(from + query.getLimit(), configs.size());
+        List<DashboardRowModel> rows = toDashboardRows(configs.subList(from, to), creatorNames);
+        return new ConfigurationPageModel(rows, configs.size(), from, query.getLimit());
+    }
+
+    /**
+     * Builds the rows of the configurations table in one sweep: the jobs the current user can see are
+     * looked up once and creator names are resolved once per creator.
+     */
+    private static List<DashboardRowModel> toDashboardRows(List<ConfigurationSummaryModel> configs,
+                                                           Map<String, String> creatorNames) throws IOException {
+        boolean isUserAdmin = isCurrentUserAdministrator();
+        String userId = getCurrentUserID();
+        ConfigurationAccessIndex accessIndex = ConfigurationRegistry.getInstance().getAccessIndex();
+        List<String> configJobNames = new ArrayList<>(configs.size());
+        for (ConfigurationSummaryModel config : configs) {
+            configJobNames.add(JobManagerGenerator.validJobName(config.getProjectName()));
+        }
+        Set<String> jobNames = JobManagerGenerator.getExistingJobNames(configJobNames);
+        List<DashboardRowModel> rows = new ArrayList<>(configs.size());
+        for (ConfigurationSummaryModel config : configs) {
+            boolean hasAccess = isUserAdmin || accessIndex.hasAccess(config.getProjectName(), userId);
+            boolean jobCreated = jobNames.contains(JobManagerGenerator.validJobName(config.getProjectName()));
+            rows.add(new DashboardRowModel(config, getCreatorName(config, creatorNames), hasAccess, jobCreated));
         }
-        return configs;
+        return rows;
+    }
+
+    private static String getCreatorName(ConfigurationSummaryModel config, Map<String, String> creatorNames) {
+        String creatorName = creatorNames.get(config.getCreator());
+        if (creatorName == null) {
+            creatorName = User.get(config.getCreator()).getFullName();
+            creatorNames.put(config.getCreator(), creatorName);
+        }
+        return creatorName;
     }
 
     private static void deleteFiles(String[] files, String pathFolder) throws IOException {
@@ -169,23 +317,42 @@ public class BuildConfigurationManager {
         }
     }
 
+    /**
+     * Locks the configuration for a load-modify-save sequence; the caller must unlock it in a finally block.
+     */
+    static Lock lockConfiguration(String name) {
+        return locks.lock(name);
+    }
+
     static void markConfigurationForDeletion(String name) throws IOException, ParserConfigurationException,
             JAXBException, MessagingException {
-        BuildConfigurationModel config = load(name);
-        if (config.getState() == ConfigurationState.FOR_DELETION) {
-            return;
+        BuildConfigurationModel config;
+        Lock lock = lockConfiguration(name);
+        try {
+            config = load(name);
+            if (config.getState() == ConfigurationState.FOR_DELETION) {
+                return;
+            }
+            config.setState(ConfigurationState.FOR_DELETION);
+            config.initCurrentDate();
+            save(config,false);
+        } finally {
+            lock.unlock();
         }
-        config.setState(ConfigurationState.FOR_DELETION);
-        config.initCurrentDate();
-        save(config,false);
         sendEmailOnChangeConfiguration(config,MessageDescription.MARKED_FOR_DELETION);
     }
 
     static void restoreConfiguration(String name) throws IOException, ParserConfigurationException,
             JAXBException, MessagingException {
-        BuildConfigurationModel config = load(name);
-        config.setState(ConfigurationState.UPDATED);
-        save(config,false);
+        BuildConfigurationModel config;
+        Lock lock = lockConfiguration(name);
+        try {
+            config = load(name);
+            config.setState(ConfigurationState.UPDATED);
+            save(config,false);
+        } finally {
+            lock.unlock();
+        }
         sendEmailOnChangeConfiguration(config,MessageDescription.RESTORE);
     }
 
@@ -203,15 +370,28 @@ public class BuildConfigurationManager {
     }
 
     public static Boolean isNameUsing(String name) throws JenkinsInstanceNotFoundException {
-        File checkName = new File(getRootDirectory() + "/" + name);
+        File checkName = getConfigDirectory(name);
         return checkName.exists();
     }
 
     static void deleteConfigurationPermanently(String name) throws IOException, MessagingException {
-        File checkFile = new File(getRootDirectory() + "/" + name);
-        BuildConfigurationModel config = load(name);
-        if (checkFile.exists()) {
-            FileUtils.deleteDirectory(checkFile);
+        BuildConfigurationModel config;
+        Lock lock = lockConfiguration(name);
+        try {
+            config = load(name);
+            File checkFile = getConfigDirectory(name);
+            if (checkFile.exists()) {
+                FileUtils.deleteDirectory(checkFile);
+            }
+            ConfigurationAccessIndex.AccessEntry access = ConfigurationRegistry.getInstance().getAccessIndex().get(name);
+            ConfigurationRegistry.getInstance().remove(name);
+            ConfigurationRevisionStore.getInstance().remove(name);
+            ConfigurationLayout.getInstance().remove(name);
+            JobFingerprints.getInstance().remove(name);
+            ConfigurationJournal.getInstance().append(name, ConfigurationChangeType.DELETE,
+                    access != null ? access.getUsers() : Collections.<String>emptySet());
+        } finally {
+            lock.unlock();
         }
 
         ConfigurationStatusMessage message = new ConfigurationStatusMessage(config.getProjectName());
@@ -225,18 +405,22 @@ public class BuildConfigurationManager {
     }
 
     static Boolean isCurrentUserHasAccess(String name) throws IOException {
-        boolean isUserAdmin = isCurrentUserAdministrator();
-        boolean isUserInAccessList = false;
-
-        if (isUserAdmin) {
+        if (isCurrentUserAdministrator()) {
             return true;
         }
-        BuildConfigurationModel configs = load(name);
-        List<UserAccessModel> usersList = configs.getUserWithAccess();
-        if (usersList != null) {
-            isUserInAccessList = configs.getUserWithAccess().contains(new UserAccessModel(getCurrentUserID()));
+        if (isNestedPath(name)) {
+            BuildConfigurationModel config = loadFromDisk(name);
+            return config.getProjectName() == null || hasAccess(config, getCurrentUserID());
         }
-        boolean isCurrentUserCreator = configs.getCreator().equals(getCurrentUserID());
+        ConfigurationAccessIndex.AccessEntry entry = ConfigurationRegistry.getInstance().getAccessIndex().get(name);
+        // a configuration which doesn't exist yet is being created by the current user
+        return entry == null || entry.isAllowed(getCurrentUserID());
+    }
+
+    private static boolean hasAccess(BuildConfigurationModel config, String userId) {
+        List<UserAccessModel> usersList = config.getUserWithAccess();
+        boolean isUserInAccessList = usersList != null && usersList.contains(new UserAccessModel(userId));
+        boolean isCurrentUserCreator = userId.equals(config.getCreator());
         return isUserInAccessList || isCurrentUserCreator;
     }
 
@@ -269,6 +453,35 @@ public class BuildConfigurationManager {
         }
     }
 
+    /**
+     * Starts moving the configurations into the sharded layout in the background.
+     *
+     * @return false if a migration is already running
+     */
+    static boolean startLayoutMigration() {
+        final ConfigurationLayout layout = ConfigurationLayout.getInstance();
+        if (layout.isMigrating()) {
+            return false;
+        }
+        Thread migration = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    layout.migrateToSharded();
+                } catch (IOException e) {
+                    logger.error("Error moving configurations to the sharded layout", e);
+                }
+            }
+        }, "Build configuration layout migration");
+        migration.setDaemon(true);
+        migration.start();
+        return true;
+    }
+
+    static String getLayoutMigrationStatus() {
+        return ConfigurationLayout.getInstance().getMigrationStatus();
+    }
+
     static BuildConfigurationModel getConfiguration(String name) throws IOException {
 
         if (!isCurrentUserHasAccess(name)) {
@@ -277,6 +490,40 @@ public class BuildConfigurationManager {
         return load(name);
     }
 
+    /**
+     * Returns the last approved version of the configuration,
+     * or an empty model if the configuration was never approved.
+     */
+    static BuildConfigurationModel loadLastApproved(String name) throws IOException {
+        BuildConfigurationModel config = ConfigurationRevisionStore.getInstance().getLastApproved(name);
+        return config != null ? ConfigurationRegistry.copy(config) : new BuildConfigurationModel();
+    }
+
+    static List<ConfigurationRevisionModel> getRevisions(String name) throws IOException {
+        if (!isCurrentUserHasAccess(name)) {
+            return new ArrayList<>();
+        }
+        return ConfigurationRevisionStore.getInstance().getRevisions(name);
+    }
+
+    static BuildConfigurationModel getRevision(String name, int revision) throws IOException {
+        if (!isCurrentUserHasAccess(name)) {
+            return null;
+        }
+        BuildConfigurationModel config = ConfigurationRevisionStore.getInstance().getRevision(name, revision);
+        return config != null ? ConfigurationRegistry.copy(config) : null;
+    }
+
+    /**
+     * Names of the top-level fields which differ between two revisions of the configuration.
+     */
+    static List<String> getChangedFields(String name, int fromRevision, int toRevision) throws IOException {
+        if (!isCurrentUserHasAccess(name)) {
+            return new ArrayList<>();
+        }
+        return ConfigurationRevisionStore.getInstance().diff(name, fromRevision, toRevision).getChangedFields();
+    }
+
     public static String getAdminEmail() {
         JenkinsLocationConfiguration configuration = JenkinsLocationConfiguration.get();
         if (configuration != null) {
@@ -343,20 +590,255 @@ public class BuildConfigurationManager {
     static void createJob(String name)
             throws IOException, ParserConfigurationException,
             SAXException, TransformerException, JAXBException, XPathExpressionException {
-        BuildConfigurationModel config = load(name);
-        JobManagerGenerator.createJob(config);
-        config.setJobUpdate(true);
-        save(config,false);
+        Lock lock = lockConfiguration(name);
+        try {
+            BuildConfigurationModel config = load(name);
+            JobManagerGenerator.createJob(config);
+            config.setJobUpdate(true);
+            save(config,false);
+            JobFingerprints.getInstance().record(name, JobFingerprints.compute(config));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates or updates the job of an approved configuration; other configurations are left alone.
+     *
+     * @return false if the configuration is not approved
+     */
+    static boolean reconcileJob(String name)
+            throws IOException, ParserConfigurationException,
+            SAXException, TransformerException, JAXBException, XPathExpressionException {
+        Lock lock = lockConfiguration(name);
+        try {
+            ConfigurationSummaryModel summary = ConfigurationRegistry.getInstance().getSummary(name);
+            if (summary == null || summary.getState() != ConfigurationState.APPROVED) {
+                return false;
+            }
+            createJob(name);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Regenerates the job of an approved configuration if the job exists and wasn't deleted through
+     * the configurator; missing jobs are left for an administrator to create.
+     *
+     * @return false if the job was left alone
+     */
+    static boolean refreshJob(String name)
+            throws IOException, ParserConfigurationException,
+            SAXException, TransformerException, JAXBException, XPathExpressionException {
+        Lock lock = lockConfiguration(name);
+        try {
+            ConfigurationSummaryModel summary = ConfigurationRegistry.getInstance().getSummary(name);
+            if (summary == null || summary.getState() != ConfigurationState.APPROVED || !summary.getJobUpdate()
+                    || !JobManagerGenerator.isJobExist(JobManagerGenerator.validJobName(name))) {
+                return false;
+            }
+            createJob(name);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts creating or updating the jobs of the approved configurations among the given ones
+     * in the background.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    static long startJobGeneration(Collection<String> names) {
+        return JobGenerationService.getInstance().start(names);
+    }
+
+    /**
+     * Starts creating or updating the jobs of all approved configurations in the background.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    static long startAllJobsGeneration() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (ConfigurationSummaryModel summary : ConfigurationRegistry.getInstance().getSummaries()) {
+            if (summary.getState() == ConfigurationState.APPROVED) {
+                names.add(summary.getProjectName());
+            }
+        }
+        return startJobGeneration(names);
+    }
+
+    /**
+     * Queues the creation or update of the configuration's job.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}
+     */
+    static long submitCreateJob(String name) {
+        return JobGenerationService.getInstance().submitCreate(name);
+    }
+
+    /**
+     * Queues the deletion of the configuration's job.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}
+     */
+    static long submitDeleteJob(String name) {
+        return JobGenerationService.getInstance().submitDelete(name);
+    }
+
+    /**
+     * Progress of the run; users other than administrators only see the runs they started.
+     */
+    static JobGenerationModel getJobGenerationStatus(long id) throws JenkinsInstanceNotFoundException {
+        return JobGenerationService.getInstance().getStatus(id, isCurrentUserAdministrator() ? null : getCurrentUserID());
+    }
+
+    /**
+     * Starts regenerating, in the background, the existing jobs of the approved configurations using a builder,
+     * SCM or platform whose definition changed since the last regeneration. The current definitions are recorded
+     * once all of these jobs are regenerated.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    static long regenerateAffectedJobs() throws IOException {
+        final ConfigurationDefinitions current = ConfigurationDefinitions.load();
+        ConfigurationDefinitions recorded = ConfigurationDefinitions.loadRecorded();
+        Set<String> names = recorded != null
+                ? getJobsToRegenerate(current.changedSince(recorded)) : Collections.<String>emptySet();
+        return JobGenerationService.getInstance().start(names, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    current.record();
+                } catch (IOException e) {
+                    logger.error("Error recording definitions", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts regenerating, in the background, the existing jobs of the approved configurations using the value,
+     * e.g. after a credential or the build server definition of a builder changed.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    static long regenerateJobs(SearchField field, String value) throws IOException {
+        Map<SearchField, Set<String>> dependencies = new HashMap<>();
+        dependencies.put(field, Collections.singleton(value));
+        return startJobGeneration(getJobsToRegenerate(dependencies));
+    }
+
+    /**
+     * Records the definitions on the first run, so later changes to them can be detected.
+     */
+    static void recordDefinitionsIfMissing() throws IOException {
+        if (ConfigurationDefinitions.loadRecorded() == null) {
+            ConfigurationDefinitions.load().record();
+        }
+    }
+
+    /**
+     * Names of the approved configurations having a job and using any of the values.
+     */
+    private static Set<String> getJobsToRegenerate(Map<SearchField, Set<String>> dependencies) throws IOException {
+        ConfigurationRegistry registry = ConfigurationRegistry.getInstance();
+        ConfigurationSearchIndex searchIndex = registry.getSearchIndex();
+        Set<String> names = new TreeSet<>();
+        for (Map.Entry<SearchField, Set<String>> dependency : dependencies.entrySet()) {
+            for (String value : dependency.getValue()) {
+                names.addAll(searchIndex.find(dependency.getKey(), value));
+            }
+        }
+        List<String> configJobNames = new ArrayList<>(names.size());
+        for (String name : names) {
+            configJobNames.add(JobManagerGenerator.validJobName(name));
+        }
+        Set<String> jobNames = JobManagerGenerator.getExistingJobNames(configJobNames);
+        Set<String> result = new TreeSet<>();
+        for (String name : names) {
+            ConfigurationSummaryModel summary = registry.getSummary(name);
+            if (summary != null && summary.getState() == ConfigurationState.APPROVED
+                    && jobNames.contains(JobManagerGenerator.validJobName(name))) {
+                result.add(name);
+            }
+        }
+        logger.info("Jobs to regenerate: " + result.size() + " of " + names.size() + " affected configurations");
+        return result;
+    }
+
+    /**
+     * Changes made after the given one to the configurations the current user can see, oldest first.
+     * A user sees the changes they made, the changes to the configurations they can see now and
+     * the deletions of the configurations they could see.
+     *
+     * @param sequence number of the last change already seen, -1 for all changes
+     */
+    static ConfigurationChangesPageModel getChangesSince(long sequence, int limit) throws IOException {
+        if (isCurrentUserAdministrator()) {
+            return ConfigurationJournal.getInstance().getChangesSince(sequence, limit, new ConfigurationJournal.Filter() {
+                @Override
+                public boolean accept(ConfigurationChangeModel change) {
+                    return true;
+                }
+            });
+        }
+        final String userId = getCurrentUserID();
+        final ConfigurationAccessIndex accessIndex = ConfigurationRegistry.getInstance().getAccessIndex();
+        return ConfigurationJournal.getInstance().getChangesSince(sequence, limit, new ConfigurationJournal.Filter() {
+            @Override
+            public boolean accept(ConfigurationChangeModel change) {
+                if (userId.equals(change.getUser())) {
+                    return true;
+                }
+                if (change.getType() == ConfigurationChangeType.DELETE) {
+                    return change.isRecordedWithAccess(userId);
+                }
+                return accessIndex.hasAccess(change.getName(), userId);
+            }
+        });
+    }
+
+    /**
+     * Streams all configurations with their revisions to the output as a zip archive.
+     *
+     * @return number of exported configurations
+     */
+    static int exportConfigurations(OutputStream out) throws IOException {
+        return ConfigurationArchive.export(out);
+    }
+
+    /**
+     * Imports the configurations of an archive made by {@link #exportConfigurations}, replacing the ones
+     * with the same names.
+     *
+     * @return names of the configurations which were not imported, with the reason
+     */
+    static Map<String, String> importConfigurations(InputStream in) throws IOException {
+        ConfigurationArchive.ImportResult result = ConfigurationArchive.importArchive(in);
+        for (Map.Entry<String, String> failure : result.getFailures().entrySet()) {
+            logger.warn("Configuration " + failure.getKey() + " was not imported: " + failure.getValue());
+        }
+        return result.getFailures();
     }
 
     static void deleteJob(String name)
             throws IOException, InterruptedException, ParserConfigurationException, JAXBException {
-        JobManagerGenerator.deleteJob(name);
-        BuildConfigurationModel config = BuildConfigurationManager.load(name);
-        if (config.getProjectName() != null && config.getState().equals(ConfigurationState.APPROVED)) {
+        Lock lock = lockConfiguration(name);
+        try {
+            JobManagerGenerator.deleteJob(name);
+            JobFingerprints.getInstance().remove(name);
+            BuildConfigurationModel config = BuildConfigurationManager.load(name);
+            if (config.getProjectName() != null && config.getState().equals(ConfigurationState.APPROVED)) {
 
-            config.setJobUpdate(false);
-            BuildConfigurationManager.save(config,false);
+                config.setJobUpdate(false);
+                BuildConfigurationManager.save(config,false);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -406,9 +888,7 @@ public class BuildConfigurationManager {
             if (!fXmlFile.exists()){
                 return new LinkedList<>();
             }
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(fXmlFile);
+            Document doc = XmlUtils.parse(fXmlFile);
 
             doc.getDocumentElement().normalize();
             NodeList nList = doc.getElementsByTagName("java.util.concurrent.CopyOnWriteArrayList");
@@ -443,7 +923,7 @@ public class BuildConfigurationManager {
                     }
                 }
             }
-        } catch (ParserConfigurationException | SAXException e) {
+        } catch (SAXException e) {
             logger.error("Parsing credentials file error", e);
             throw new RuntimeException("Parsing credentials file error", e);
         }
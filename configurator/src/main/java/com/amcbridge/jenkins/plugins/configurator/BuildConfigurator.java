@@ -1,8 +1,10 @@
 package com.amcbridge.jenkins.plugins.configurator;
 
+import com.amcbridge.jenkins.plugins.enums.ConfigurationSortField;
 import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
 import com.amcbridge.jenkins.plugins.enums.FormResult;
 import com.amcbridge.jenkins.plugins.enums.MessageDescription;
+import com.amcbridge.jenkins.plugins.enums.SearchField;
 import com.amcbridge.jenkins.plugins.exceptions.JenkinsInstanceNotFoundException;
 import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
 import com.amcbridge.jenkins.plugins.job.WsPluginHelper;
@@ -10,10 +12,18 @@ import com.amcbridge.jenkins.plugins.messenger.ConfigurationStatusMessage;
 import com.amcbridge.jenkins.plugins.messenger.MailSender;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import com.amcbridge.jenkins.plugins.models.BuilderConfigModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangeModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangesPageModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationPageModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationRevisionModel;
+import com.amcbridge.jenkins.plugins.models.DashboardRowModel;
+import com.amcbridge.jenkins.plugins.models.JobGenerationModel;
 import com.amcbridge.jenkins.plugins.models.ProjectToBuildModel;
 import com.amcbridge.jenkins.plugins.models.UserAccessModel;
 import com.amcbridge.jenkins.plugins.view.ProjectToBuildView;
 import com.amcbridge.jenkins.plugins.view.ViewGenerator;
+import com.amcbridge.jenkins.plugins.xstreamelements.Builder;
+import com.amcbridge.jenkins.plugins.xstreamelements.BuilderLoader;
 import com.amcbridge.jenkins.plugins.xstreamelements.ScriptType;
 import hudson.Extension;
 import hudson.model.Node;
@@ -22,19 +32,24 @@ import hudson.model.User;
 import hudson.triggers.TimerTrigger;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
+import org.apache.commons.fileupload.FileItem;
 import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.bind.JavaScriptMethod;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.mail.MessagingException;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,10 +58,12 @@ public final class BuildConfigurator implements RootAction {
 
     private final MailSender mail;
     private static final String VIEW_GENERATOR = "viewGenerator";
+    private static final String IMPORT_FAILURES = "importFailures";
     private static final String PLUGIN_NAME = "Build Configurator";
     private static final String ICON_PATH = "/plugin/build-configurator/icons/system_config_services.png";
     private static final String DEFAULT_PAGE_URL = "buildconfigurator";
     private static final String LOGIN_PAGE_URL = "../login";
+    private static final String EXPORT_FILE_NAME = "build-configurations.zip";
     private static final Logger logger = LoggerFactory.getLogger(BuildConfigurator.class);
     private static final String USER_CONFIG_PATTERN = "^([a-zA-Z0-9_-]*)$";
 
@@ -75,16 +92,67 @@ public final class BuildConfigurator implements RootAction {
         return DEFAULT_PAGE_URL;
     }
 
+    /**
+     * One page of the configurations visible to the current user.
+     *
+     * @param sortBy one of name, state, date, creator
+     * @param state  {@link ConfigurationState} name, or empty for any state
+     */
     @JavaScriptMethod
-    public List<BuildConfigurationModel> getAllConfigurations() {
+    public ConfigurationPageModel getConfigurationsPage(int offset, int limit, String sortBy, boolean descending,
+                                                        String state, String scm, String builder, String node) {
         try {
-            return BuildConfigurationManager.loadAllConfigurations();
+            ConfigurationQuery query = new ConfigurationQuery();
+            query.setOffset(offset);
+            query.setLimit(limit);
+            query.setSortField(ConfigurationSortField.fromString(sortBy));
+            query.setDescending(descending);
+            if (state != null && !state.isEmpty()) {
+                query.setState(ConfigurationState.valueOf(state));
+            }
+            query.setScm(scm);
+            query.setBuilder(builder);
+            query.setNode(node);
+            return BuildConfigurationManager.loadConfigurationPage(query);
         } catch (Exception e) {
             logger.error("Configurations list problem", e);
+            return new ConfigurationPageModel(new LinkedList<DashboardRowModel>(), 0, offset, limit);
+        }
+    }
+
+    /**
+     * Names of the configurations the current user can see that use the value,
+     * e.g. every configuration building from a repository or running on a node.
+     *
+     * @param field {@link SearchField} name: scm, repository, builder, platform, node or credentials
+     */
+    @JavaScriptMethod
+    public List<String> findConfigurations(String field, String value) {
+        try {
+            return BuildConfigurationManager.findConfigurations(SearchField.fromString(field), value);
+        } catch (Exception e) {
+            logger.error("Configuration search problem", e);
             return new LinkedList<>();
         }
     }
 
+    /**
+     * Changes to the configurations after the given one, oldest first, so clients can sync incrementally.
+     * The next call continues after {@link ConfigurationChangesPageModel#getLastSequence()}.
+     *
+     * @param sequence sequence number of the last change already seen, -1 for all changes
+     */
+    @JavaScriptMethod
+    public ConfigurationChangesPageModel getChangesSince(long sequence, int limit) {
+        try {
+            int pageSize = limit > 0 ? Math.min(limit, ConfigurationQuery.MAX_PAGE_SIZE) : ConfigurationQuery.DEFAULT_PAGE_SIZE;
+            return BuildConfigurationManager.getChangesSince(sequence, pageSize);
+        } catch (Exception e) {
+            logger.error("Configuration changes problem", e);
+            return new ConfigurationChangesPageModel(new LinkedList<ConfigurationChangeModel>(), sequence);
+        }
+    }
+
     public void doCopyConfig(final StaplerRequest request,
                              final StaplerResponse response) {
         try {
@@ -105,7 +173,12 @@ public final class BuildConfigurator implements RootAction {
                 modelToCopy.setCreator(username);
                 modelToCopy.setProjectName(modelNewName);
                 modelToCopy.setState(ConfigurationState.NEW);
-                BuildConfigurationManager.save(modelToCopy,false);
+                Lock lock = BuildConfigurationManager.lockConfiguration(modelNewName);
+                try {
+                    BuildConfigurationManager.save(modelToCopy,false);
+                } finally {
+                    lock.unlock();
+                }
                 ConfigurationStatusMessage message
                         = new ConfigurationStatusMessage(modelNewName);
                 message.setSubject(modelNewName);
@@ -127,6 +200,63 @@ public final class BuildConfigurator implements RootAction {
         }
     }
 
+    public void doExportConfigurations(final StaplerRequest request,
+                                       final StaplerResponse response) throws IOException {
+        try {
+            if (!isCurrentUserAdministrator()) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+        } catch (JenkinsInstanceNotFoundException e) {
+            logger.error("Export configurations fail", e);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + EXPORT_FILE_NAME + "\"");
+        BuildConfigurationManager.exportConfigurations(response.getOutputStream());
+    }
+
+    @RequirePOST
+    public void doImportConfigurations(final StaplerRequest request,
+                                       final StaplerResponse response) {
+        List<String> failures = new ArrayList<>();
+        try {
+            if (isCurrentUserAdministrator()) {
+                FileItem archive = request.getFileItem("archive");
+                if (archive != null) {
+                    try (InputStream in = archive.getInputStream()) {
+                        for (Map.Entry<String, String> failure
+                                : BuildConfigurationManager.importConfigurations(in).entrySet()) {
+                            failures.add(failure.getKey() + ": " + failure.getValue());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ServletException e) {
+            logger.error("Import configurations fail", e);
+            failures.add("Import failed: " + e.getMessage());
+        } finally {
+            request.getSession().setAttribute(IMPORT_FAILURES, failures);
+            try {
+                response.sendRedirect("./");
+            } catch (IOException e) {
+                logger.error("Redirect page error", e);
+            }
+        }
+    }
+
+    /**
+     * What went wrong in the last import of this session, shown once on the page.
+     */
+    public List<String> takeImportFailures() {
+        HttpSession session = Stapler.getCurrentRequest().getSession();
+        @SuppressWarnings("unchecked")
+        List<String> failures = (List<String>) session.getAttribute(IMPORT_FAILURES);
+        session.removeAttribute(IMPORT_FAILURES);
+        return failures != null ? failures : new LinkedList<String>();
+    }
+
     public void doCreateNewConfigurator(final StaplerRequest request,
                                         final StaplerResponse response) {
         try {
@@ -167,52 +297,58 @@ public final class BuildConfigurator implements RootAction {
 
             FormResult type = FormResult.valueOf(formAttribute.get("formType").toString());
 
-            BuildConfigurationModel currentConfig = BuildConfigurationManager
-                    .load(newConfig.getProjectName());
-            boolean saveForDiff = false;
-
-            switch (type) {
-                case CREATE:
-                    newConfig.setState(ConfigurationState.NEW);
-                    message.setDescription(MessageDescription.CREATE.toString() + jenkinsUrl);
-                    break;
-                case EDIT:
-                    if(currentConfig.getState().equals(ConfigurationState.NEW)) {
+            boolean isSaved = false;
+            Lock lock = BuildConfigurationManager.lockConfiguration(newConfig.getProjectName());
+            try {
+                BuildConfigurationModel currentConfig = BuildConfigurationManager
+                        .load(newConfig.getProjectName());
+                boolean isApproved = false;
+
+                switch (type) {
+                    case CREATE:
                         newConfig.setState(ConfigurationState.NEW);
-                    } else {
-                        newConfig.setState(ConfigurationState.UPDATED);
-                    }
-                    newConfig.setCreator(currentConfig.getCreator());
-                    message.setDescription(MessageDescription.CHANGE.toString());
-                    break;
-                case APPROVED:
-                    saveForDiff = true;
-                    newConfig.setState(ConfigurationState.APPROVED);
-                    newConfig.setCreator(currentConfig.getCreator());
-                    newConfig.setJobUpdate(false);
-                    BuildConfigurationManager.save(newConfig,false);
-                    message.setDescription(MessageDescription.APPROVE.toString());
-                    break;
-                case REJECT:
-                    newConfig = currentConfig;
-                    newConfig.setState(ConfigurationState.REJECTED);
-                    message.setDescription(MessageDescription.REJECT.toString()
-                            + " " + formAttribute.get("rejectionReason").toString());
-                    newConfig.setRejectionReason(formAttribute.get("rejectionReason").toString() + jenkinsUrl);
-                    break;
-                default:
-                    break;
-            }
-            if (!BuildConfigurationManager.getUserMailAddress(newConfig).isEmpty()) {
-                message.setCC(BuildConfigurationManager.getUserMailAddress(newConfig));
-            }
+                        message.setDescription(MessageDescription.CREATE.toString() + jenkinsUrl);
+                        break;
+                    case EDIT:
+                        if(currentConfig.getState().equals(ConfigurationState.NEW)) {
+                            newConfig.setState(ConfigurationState.NEW);
+                        } else {
+                            newConfig.setState(ConfigurationState.UPDATED);
+                        }
+                        newConfig.setCreator(currentConfig.getCreator());
+                        message.setDescription(MessageDescription.CHANGE.toString());
+                        break;
+                    case APPROVED:
+                        isApproved = true;
+                        newConfig.setState(ConfigurationState.APPROVED);
+                        newConfig.setCreator(currentConfig.getCreator());
+                        newConfig.setJobUpdate(false);
+                        BuildConfigurationManager.save(newConfig,false);
+                        message.setDescription(MessageDescription.APPROVE.toString());
+                        break;
+                    case REJECT:
+                        newConfig = currentConfig;
+                        newConfig.setState(ConfigurationState.REJECTED);
+                        message.setDescription(MessageDescription.REJECT.toString()
+                                + " " + formAttribute.get("rejectionReason").toString());
+                        newConfig.setRejectionReason(formAttribute.get("rejectionReason").toString() + jenkinsUrl);
+                        break;
+                    default:
+                        break;
+                }
+                if (!BuildConfigurationManager.getUserMailAddress(newConfig).isEmpty()) {
+                    message.setCC(BuildConfigurationManager.getUserMailAddress(newConfig));
+                }
 
-            if (isArgsOk(currentConfig, newConfig)) {
-                checkBuildersUserConfig(newConfig);
-                BuildConfigurationManager.save(newConfig,false);
-                if (saveForDiff && isCurrentUserAdministrator()) {
-                    BuildConfigurationManager.save(newConfig,true);
+                if (isArgsOk(currentConfig, newConfig)) {
+                    checkBuildersUserConfig(newConfig);
+                    BuildConfigurationManager.save(newConfig, isApproved && isCurrentUserAdministrator());
+                    isSaved = true;
                 }
+            } finally {
+                lock.unlock();
+            }
+            if (isSaved) {
                 message.setDestinationAddress(getAdminEmails());
                 mail.sendMail(message);
             }
@@ -331,7 +467,7 @@ public final class BuildConfigurator implements RootAction {
         try {
             BuildConfigurationModel conf = BuildConfigurationManager.load(projectName);
 
-            BuildConfigurationModel confDiff = BuildConfigurationManager.load(projectName + "/diff");
+            BuildConfigurationModel confDiff = BuildConfigurationManager.loadLastApproved(projectName);
 
             if (Stapler.getCurrentRequest().getSession().getAttribute(VIEW_GENERATOR) == null) {
                 loadCreateNewBuildConfiguration();
@@ -363,7 +499,7 @@ public final class BuildConfigurator implements RootAction {
     public ProjectToBuildView loadUserAccessView(String projectName) {
         try {
             BuildConfigurationModel conf = BuildConfigurationManager.load(projectName);
-            BuildConfigurationModel confDiff = BuildConfigurationManager.load(projectName + "/diff");
+            BuildConfigurationModel confDiff = BuildConfigurationManager.loadLastApproved(projectName);
             if (conf == null) {
                 throw new NullPointerException("Configuration not found");
             }
@@ -513,7 +649,7 @@ public final class BuildConfigurator implements RootAction {
     public BuildConfigurationModel getDiffConfiguration(String name) {
         try {
             if (isCurrentUserAdministrator()) {
-                return BuildConfigurationManager.getConfiguration(name + "/diff");
+                return BuildConfigurationManager.loadLastApproved(name);
             }
             return null;
         } catch (Exception e) {
@@ -522,6 +658,54 @@ public final class BuildConfigurator implements RootAction {
         }
     }
 
+    @JavaScriptMethod
+    public List<ConfigurationRevisionModel> getConfigurationRevisions(String name) {
+        try {
+            return BuildConfigurationManager.getRevisions(name);
+        } catch (Exception e) {
+            logger.error("Error getting configuration revisions", e);
+            return new LinkedList<>();
+        }
+    }
+
+    @JavaScriptMethod
+    public BuildConfigurationModel getConfigurationRevision(String name, int revision) {
+        try {
+            return BuildConfigurationManager.getRevision(name, revision);
+        } catch (Exception e) {
+            logger.error("Error getting configuration revision", e);
+            return null;
+        }
+    }
+
+    @JavaScriptMethod
+    public List<String> getChangedFields(String name, int fromRevision, int toRevision) {
+        try {
+            return BuildConfigurationManager.getChangedFields(name, fromRevision, toRevision);
+        } catch (Exception e) {
+            logger.error("Error comparing configuration revisions", e);
+            return new LinkedList<>();
+        }
+    }
+
+    @JavaScriptMethod
+    public boolean migrateToShardedLayout() {
+        try {
+            return isCurrentUserAdministrator() && BuildConfigurationManager.startLayoutMigration();
+        } catch (Exception e) {
+            logger.error("Error starting layout migration", e);
+            return false;
+        }
+    }
+
+    @JavaScriptMethod
+    public String getLayoutMigrationStatus() {
+        if (!isCurrentUserAdministrator()) {
+            return null;
+        }
+        return BuildConfigurationManager.getLayoutMigrationStatus();
+    }
+
     private static String getAdminEmails() {
         return BuildConfigurationManager.getAdminEmail();
     }
@@ -535,6 +719,23 @@ public final class BuildConfigurator implements RootAction {
         }
     }
 
+    public List<ConfigurationState> getConfigurationStates() {
+        return Arrays.asList(ConfigurationState.values());
+    }
+
+    public List<String> getBuilderNames() {
+        try {
+            List<String> builderNames = new ArrayList<>();
+            for (Builder builder : new BuilderLoader().getBuilders()) {
+                builderNames.add(builder.getValue());
+            }
+            return builderNames;
+        } catch (Exception e) {
+            logger.error("Error getting builders", e);
+            return new LinkedList<>();
+        }
+    }
+
     public List<String> getNodesName() {
         try {
             return BuildConfigurationManager.getNodesName();
@@ -544,14 +745,18 @@ public final class BuildConfigurator implements RootAction {
         }
     }
 
+    /**
+     * Queues the creation or update of the job.
+     *
+     * @return id to poll with {@link #getJobGenerationStatus}, -1 if the job was not queued
+     */
     @JavaScriptMethod
-    public boolean createJob(String name) {
+    public long createJob(String name) {
         try {
-            BuildConfigurationManager.createJob(name);
-            return true;
+            return BuildConfigurationManager.submitCreateJob(name);
         } catch (Exception e) {
             logger.error("Error job creating", e);
-            return false;
+            return -1;
         }
     }
 
@@ -565,12 +770,104 @@ public final class BuildConfigurator implements RootAction {
         }
     }
 
+    /**
+     * Starts regenerating the jobs affected by changes to Builders.xml, SCM.xml or Platforms.xml.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if it was not started
+     */
+    @JavaScriptMethod
+    public long regenerateAffectedJobs() {
+        try {
+            if (!isCurrentUserAdministrator()) {
+                return -1;
+            }
+            return BuildConfigurationManager.regenerateAffectedJobs();
+        } catch (Exception e) {
+            logger.error("Error regenerating jobs", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Starts regenerating the jobs of the configurations using the value of the field.
+     *
+     * @param field {@link SearchField} name
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if it was not started
+     */
+    @JavaScriptMethod
+    public long regenerateJobsUsing(String field, String value) {
+        try {
+            if (!isCurrentUserAdministrator()) {
+                return -1;
+            }
+            return BuildConfigurationManager.regenerateJobs(SearchField.fromString(field), value);
+        } catch (Exception e) {
+            logger.error("Error regenerating jobs", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Starts generating the jobs of the given approved configurations.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    @JavaScriptMethod
+    public long generateJobs(String[] names) {
+        try {
+            if (!isCurrentUserAdministrator()) {
+                return -1;
+            }
+            return BuildConfigurationManager.startJobGeneration(Arrays.asList(names));
+        } catch (Exception e) {
+            logger.error("Error starting job generation", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Starts generating the jobs of all approved configurations.
+     *
+     * @return id of the run for {@link #getJobGenerationStatus}, -1 if another run is in progress
+     */
+    @JavaScriptMethod
+    public long generateAllJobs() {
+        try {
+            if (!isCurrentUserAdministrator()) {
+                return -1;
+            }
+            return BuildConfigurationManager.startAllJobsGeneration();
+        } catch (Exception e) {
+            logger.error("Error starting job generation", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Progress of a run; users other than administrators only see the runs they started.
+     */
+    @JavaScriptMethod
+    public JobGenerationModel getJobGenerationStatus(long id) {
+        try {
+            return BuildConfigurationManager.getJobGenerationStatus(id);
+        } catch (Exception e) {
+            logger.error("Error getting job generation status", e);
+            return null;
+        }
+    }
+
+    /**
+     * Queues the deletion of the job.
+     *
+     * @return id to poll with {@link #getJobGenerationStatus}, -1 if the job was not queued
+     */
     @JavaScriptMethod
-    public void deleteJob(String name) {
+    public long deleteJob(String name) {
         try {
-            BuildConfigurationManager.deleteJob(name);
+            return BuildConfigurationManager.submitDeleteJob(name);
         } catch (Exception e) {
             logger.error("Error job deleting", e);
+            return -1;
         }
     }
 
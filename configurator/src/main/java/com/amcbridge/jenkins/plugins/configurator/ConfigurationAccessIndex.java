@@ -0,0 +1,111 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Who may see which configuration: the creator and the users from the access list.
+ * Kept up to date by {@link ConfigurationRegistry} so access checks never load a configuration.
+ */
+final class ConfigurationAccessIndex {
+
+    private final ConcurrentMap<String, AccessEntry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> namesByUser = new ConcurrentHashMap<>();
+
+    static final class AccessEntry {
+        private final String creator;
+        private final Set<String> allowedUsers;
+
+        private AccessEntry(String creator, Set<String> allowedUsers) {
+            this.creator = creator;
+            this.allowedUsers = Collections.unmodifiableSet(allowedUsers);
+        }
+
+        String getCreator() {
+            return creator;
+        }
+
+        Set<String> getAllowedUsers() {
+            return allowedUsers;
+        }
+
+        boolean isAllowed(String userId) {
+            return userId.equals(creator) || allowedUsers.contains(userId);
+        }
+
+        /**
+         * The creator and the users from the access list.
+         */
+        Set<String> getUsers() {
+            Set<String> users = new HashSet<>(allowedUsers);
+            if (creator != null) {
+                users.add(creator);
+            }
+            return users;
+        }
+    }
+
+    synchronized void update(ConfigurationSummaryModel config) {
+        String name = config.getProjectName();
+        AccessEntry entry = new AccessEntry(config.getCreator(), config.getUsersWithAccess());
+        AccessEntry previous = entries.put(name, entry);
+        Set<String> users = entry.getUsers();
+        if (previous != null) {
+            for (String user : previous.getUsers()) {
+                if (!users.contains(user)) {
+                    removeName(user, name);
+                }
+            }
+        }
+        for (String user : users) {
+            Set<String> names = namesByUser.get(user);
+            if (names == null) {
+                names = new ConcurrentSkipListSet<>();
+                namesByUser.put(user, names);
+            }
+            names.add(name);
+        }
+    }
+
+    synchronized void remove(String name) {
+        AccessEntry previous = entries.remove(name);
+        if (previous != null) {
+            for (String user : previous.getUsers()) {
+                removeName(user, name);
+            }
+        }
+    }
+
+    AccessEntry get(String name) {
+        return entries.get(name);
+    }
+
+    boolean hasAccess(String name, String userId) {
+        AccessEntry entry = entries.get(name);
+        return entry != null && entry.isAllowed(userId);
+    }
+
+    /**
+     * Names of the configurations the user created or was given access to, in alphabetical order.
+     */
+    Set<String> getAccessibleNames(String userId) {
+        Set<String> names = namesByUser.get(userId);
+        return names != null ? Collections.unmodifiableSet(names) : Collections.<String>emptySet();
+    }
+
+    private void removeName(String user, String name) {
+        Set<String> names = namesByUser.get(user);
+        if (names != null) {
+            names.remove(name);
+            if (names.isEmpty()) {
+                namesByUser.remove(user);
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationChangeType;
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+import jenkins.model.Jenkins;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Moves all configurations, revisions included, to and from one zip archive holding a
+ * {@code <name>/...} entry for every file of every configuration directory.
+ * Import reads the archive as a stream, a batch of configurations at a time: the files of a batch are
+ * parsed and validated in parallel and written to a staging directory next to each configuration;
+ * only config.xml is unmarshalled, the revisions and their log are copied byte for byte. Under the lock
+ * of the configuration, the staging directory is then renamed into place and the configuration is put
+ * straight into the registry, so a failed write or a crash never loses the configuration it was to replace.
+ * An imported configuration replaces the one with the same name.
+ */
+final class ConfigurationArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationArchive.class);
+    private static final int BATCH_SIZE = 256;
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]+$");
+    private static final String STAGING_PREFIX = ".import-";
+    private static final String REPLACED_PREFIX = ".replaced-";
+
+    static final class ImportResult {
+        private final List<String> imported = new ArrayList<>();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+
+        List<String> getImported() {
+            return Collections.unmodifiableList(imported);
+        }
+
+        /**
+         * Names of the configurations which were not imported, with the reason.
+         */
+        Map<String, String> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+
+    private static final class ParsedConfiguration {
+        private final String name;
+        private final BuildConfigurationModel model;
+        private final Map<String, Object> files;
+
+        private ParsedConfiguration(String name, BuildConfigurationModel model, Map<String, Object> files) {
+            this.name = name;
+            this.model = model;
+            this.files = files;
+        }
+    }
+
+    private ConfigurationArchive() {
+    }
+
+    /**
+     * Writes every configuration to the stream, which is left open.
+     *
+     * @return number of exported configurations
+     */
+    static int export(OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out));
+        zip.setLevel(Deflater.BEST_SPEED);
+        int exported = 0;
+        for (String name : ConfigurationRegistry.getInstance().getNames()) {
+            Map<String, byte[]> files = new LinkedHashMap<>();
+            Lock lock = BuildConfigurationManager.lockConfiguration(name);
+            try {
+                File directory = BuildConfigurationManager.getConfigDirectory(name);
+                if (!new File(directory, BuildConfigurationManager.CONFIG_FILE_NAME).exists()) {
+                    continue;
+                }
+                readDirectory(directory, name + "/", files);
+            } finally {
+                lock.unlock();
+            }
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+            exported++;
+        }
+        zip.finish();
+        zip.flush();
+        logger.info("Build configurations exported: " + exported);
+        return exported;
+    }
+
+    static ImportResult importArchive(InputStream in) throws IOException {
+        ImportResult result = new ImportResult();
+        ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in));
+        Map<String, Map<String, byte[]>> batch = new LinkedHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String path = entry.getName();
+                int separator = path.indexOf('/');
+                if (separator <= 0) {
+                    logger.warn("Archive entry " + path + " is outside of a configuration directory, skipped");
+                    continue;
+                }
+                String name = path.substring(0, separator);
+                Map<String, byte[]> files = batch.get(name);
+                if (files == null) {
+                    if (batch.size() >= BATCH_SIZE) {
+                        importBatch(batch, pool, result);
+                        batch.clear();
+                    }
+                    files = new HashMap<>();
+                    batch.put(name, files);
+                }
+                files.put(path.substring(separator + 1), IOUtils.toByteArray(zip));
+            }
+            importBatch(batch, pool, result);
+        } finally {
+            pool.shutdown();
+        }
+        logger.info("Build configurations imported: " + result.imported.size() + ", failed: " + result.failures.size());
+        return result;
+    }
+
+    private static void importBatch(Map<String, Map<String, byte[]>> batch, ForkJoinPool pool, ImportResult result)
+            throws IOException {
+        Map<String, Future<ParsedConfiguration>> parsing = new LinkedHashMap<>();
+        for (final Map.Entry<String, Map<String, byte[]>> configuration : batch.entrySet()) {
+            parsing.put(configuration.getKey(), pool.submit(new Callable<ParsedConfiguration>() {
+                @Override
+                public ParsedConfiguration call() throws Exception {
+                    return parse(configuration.getKey(), configuration.getValue());
+                }
+            }));
+        }
+        List<ParsedConfiguration> parsed = new ArrayList<>(parsing.size());
+        Map<File, Object> writes = new HashMap<>();
+        for (Map.Entry<String, Future<ParsedConfiguration>> future : parsing.entrySet()) {
+            try {
+                ParsedConfiguration configuration = future.getValue().get();
+                File staging = getStagingDirectory(configuration.name);
+                if (staging.exists()) {
+                    FileUtils.deleteDirectory(staging);
+                }
+                for (Map.Entry<String, Object> file : configuration.files.entrySet()) {
+                    File target = new File(staging, file.getKey());
+                    File parent = target.getParentFile();
+                    if (!parent.exists() && !parent.mkdirs()) {
+                        throw new IOException("Unable to create path:" + parent.getPath());
+                    }
+                    writes.put(target, file.getValue());
+                }
+                parsed.add(configuration);
+            } catch (ExecutionException e) {
+                // the pool wraps the checked exceptions of a callable, once more when rethrowing them
+                Throwable cause = e.getCause();
+                while (cause instanceof RuntimeException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                result.failures.put(future.getKey(), String.valueOf(cause.getMessage()));
+                logger.error("Configuration " + future.getKey() + " was not imported", cause);
+            } catch (IOException e) {
+                result.failures.put(future.getKey(), String.valueOf(e.getMessage()));
+                logger.error("Configuration " + future.getKey() + " was not imported", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            }
+        }
+        try {
+            ConfigurationWriter.getInstance().writeAll(writes);
+        } catch (IOException e) {
+            for (ParsedConfiguration configuration : parsed) {
+                FileUtils.deleteQuietly(getStagingDirectory(configuration.name));
+            }
+            throw e;
+        }
+        ConfigurationRegistry registry = ConfigurationRegistry.getInstance();
+        for (ParsedConfiguration configuration : parsed) {
+            Lock lock = BuildConfigurationManager.lockConfiguration(configuration.name);
+            try {
+                ConfigurationChangeType change = registry.getSummary(configuration.name) == null
+                        ? ConfigurationChangeType.CREATE : ConfigurationChangeType.UPDATE;
+                replace(configuration.name);
+                registry.putOwned(configuration.model);
+                ConfigurationJournal.getInstance().append(configuration.name, change);
+                ConfigurationRevisionStore.getInstance().remove(configuration.name);
+                result.imported.add(configuration.name);
+            } catch (IOException e) {
+                result.failures.put(configuration.name, String.valueOf(e.getMessage()));
+                logger.error("Configuration " + configuration.name + " was not imported", e);
+                FileUtils.deleteQuietly(getStagingDirectory(configuration.name));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Renames the staged directory of the configuration into place. The directory it replaces is moved aside
+     * first and put back if the staged one can't be moved in.
+     */
+    private static void replace(String name) throws IOException {
+        File directory = BuildConfigurationManager.getConfigDirectory(name);
+        File staging = getStagingDirectory(name);
+        File replaced = new File(directory.getParentFile(), REPLACED_PREFIX + name);
+        if (replaced.exists()) {
+            FileUtils.deleteDirectory(replaced);
+        }
+        if (directory.exists()) {
+            Files.move(directory.toPath(), replaced.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        try {
+            Files.move(staging.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (replaced.exists()) {
+                Files.move(replaced.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            throw e;
+        }
+        FileUtils.deleteDirectory(replaced);
+    }
+
+    /**
+     * Hidden directory next to the configuration's, so it's never listed as a configuration
+     * and can be renamed into place.
+     */
+    private static File getStagingDirectory(String name) throws IOException {
+        File directory = BuildConfigurationManager.getConfigDirectory(name);
+        return new File(directory.getParentFile(), STAGING_PREFIX + name);
+    }
+
+    /**
+     * Reads one configuration, checking the configuration is named after its directory and every file
+     * stays inside it. Only config.xml is unmarshalled; the revisions and their log are copied as they are.
+     */
+    private static ParsedConfiguration parse(String name, Map<String, byte[]> files) throws IOException {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IOException("Invalid configuration name: " + name);
+        }
+        byte[] config = files.get(BuildConfigurationManager.CONFIG_FILE_NAME);
+        if (config == null) {
+            throw new IOException("No " + BuildConfigurationManager.CONFIG_FILE_NAME + " for " + name);
+        }
+        BuildConfigurationModel model = readModel(config);
+        if (!name.equals(model.getProjectName())) {
+            throw new IOException("Configuration " + model.getProjectName() + " is stored as " + name);
+        }
+        ConfigurationCompactor.compact(model);
+        Map<String, Object> parsed = new HashMap<>(files.size() * 2);
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            String path = file.getKey();
+            if (path.startsWith("/") || path.contains("\\") || ("/" + path + "/").contains("/../")) {
+                throw new IOException("Invalid file path in " + name + ": " + path);
+            }
+            if (!BuildConfigurationManager.CONFIG_FILE_NAME.equals(path)) {
+                parsed.put(path, file.getValue());
+            }
+        }
+        parsed.put(BuildConfigurationManager.CONFIG_FILE_NAME, model);
+        return new ParsedConfiguration(name, model, parsed);
+    }
+
+    /**
+     * Unmarshals config.xml, refusing any root element other than a configuration.
+     */
+    private static BuildConfigurationModel readModel(byte[] config) throws IOException {
+        HierarchicalStreamReader reader = new XppDriver().createReader(new ByteArrayInputStream(config));
+        try {
+            String expected = Jenkins.XSTREAM.getMapper().serializedClass(BuildConfigurationModel.class);
+            if (!expected.equals(reader.getNodeName())) {
+                throw new IOException("Unexpected root element " + reader.getNodeName() + " in "
+                        + BuildConfigurationManager.CONFIG_FILE_NAME);
+            }
+            BuildConfigurationModel model = new BuildConfigurationModel();
+            Jenkins.XSTREAM.unmarshal(reader, model);
+            return model;
+        } catch (XStreamException e) {
+            throw new IOException("Unable to read " + BuildConfigurationManager.CONFIG_FILE_NAME, e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readDirectory(File directory, String prefix, Map<String, byte[]> files) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                readDirectory(child, prefix + child.getName() + "/", files);
+            } else if (!child.getName().endsWith(ConfigurationWriter.TEMP_FILE_SUFFIX)) {
+                files.put(prefix + child.getName(), FileUtils.readFileToByteArray(child));
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads many configuration directories at once on a bounded fork-join pool.
+ * A configuration which can't be read is reported as a failure and doesn't stop the rest of the batch.
+ */
+final class ConfigurationBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationBulkLoader.class);
+    private static final int PARALLELISM = Integer.getInteger(ConfigurationBulkLoader.class.getName() + ".parallelism",
+            Runtime.getRuntime().availableProcessors());
+    private static final int SPLIT_THRESHOLD = 16;
+
+    interface ProgressListener {
+
+        void onLoaded(String name, int processed, int total);
+
+        void onFailed(String name, Throwable cause, int processed, int total);
+    }
+
+    static final class Result {
+        private final Map<String, ConfigurationEntry> loaded;
+        private final Map<String, Throwable> failures;
+        private final long elapsedMillis;
+
+        private Result(Map<String, ConfigurationEntry> loaded, Map<String, Throwable> failures, long elapsedMillis) {
+            this.loaded = Collections.unmodifiableMap(loaded);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        Map<String, ConfigurationEntry> getLoaded() {
+            return loaded;
+        }
+
+        Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    private final int parallelism;
+    private final ProgressListener listener;
+
+    ConfigurationBulkLoader(ProgressListener listener) {
+        this(PARALLELISM, listener);
+    }
+
+    ConfigurationBulkLoader(int parallelism, ProgressListener listener) {
+        this.parallelism = Math.max(1, parallelism);
+        this.listener = listener;
+    }
+
+    Result load(File[] directories) {
+        long start = System.currentTimeMillis();
+        Map<String, ConfigurationEntry> loaded = new ConcurrentHashMap<>(directories.length * 2);
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        if (directories.length > 0) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, directories.length), new LoaderThreadFactory(),
+                    null, false);
+            try {
+                pool.invoke(new LoadTask(directories, 0, directories.length, loaded, failures, new AtomicInteger()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new Result(loaded, failures, System.currentTimeMillis() - start);
+    }
+
+    private final class LoadTask extends RecursiveAction {
+        private final File[] directories;
+        private final int from;
+        private final int to;
+        private final Map<String, ConfigurationEntry> loaded;
+        private final Map<String, Throwable> failures;
+        private final AtomicInteger processed;
+
+        private LoadTask(File[] directories, int from, int to, Map<String, ConfigurationEntry> loaded,
+                         Map<String, Throwable> failures, AtomicInteger processed) {
+            this.directories = directories;
+            this.from = from;
+            this.to = to;
+            this.loaded = loaded;
+            this.failures = failures;
+            this.processed = processed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    loadDirectory(directories[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LoadTask(directories, from, middle, loaded, failures, processed),
+                    new LoadTask(directories, middle, to, loaded, failures, processed));
+        }
+
+        private void loadDirectory(File directory) {
+            String name = directory.getName();
+            try {
+                loaded.put(name, ConfigurationEntry.read(new File(directory, BuildConfigurationManager.CONFIG_FILE_NAME),
+                        new BuildConfigurationModel()));
+                listener.onLoaded(name, processed.incrementAndGet(), directories.length);
+            } catch (Exception e) {
+                failures.put(name, e);
+                listener.onFailed(name, e, processed.incrementAndGet(), directories.length);
+            }
+        }
+    }
+
+    private static final class LoaderThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            };
+            thread.setName("Build configuration loader #" + counter.incrementAndGet());
+            thread.setContextClassLoader(ConfigurationBulkLoader.class.getClassLoader());
+            return thread;
+        }
+    }
+
+    /**
+     * Writes progress to the plugin log roughly every tenth part of the batch, and every failure.
+     */
+    static final class LoggingProgressListener implements ProgressListener {
+        private final AtomicInteger lastReported = new AtomicInteger();
+
+        @Override
+        public void onLoaded(String name, int processed, int total) {
+            report(processed, total);
+        }
+
+        @Override
+        public void onFailed(String name, Throwable cause, int processed, int total) {
+            logger.error("Error loading configuration " + name, cause);
+            report(processed, total);
+        }
+
+        private void report(int processed, int total) {
+            int step = Math.max(1, total / 10);
+            int reported = lastReported.get();
+            if ((processed - reported >= step || processed == total) && lastReported.compareAndSet(reported, processed)) {
+                logger.info("Loading build configurations: " + processed + "/" + total);
+            }
+        }
+    }
+}
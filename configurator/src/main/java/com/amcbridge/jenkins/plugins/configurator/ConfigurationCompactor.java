@@ -0,0 +1,66 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.BuilderConfigModel;
+import com.amcbridge.jenkins.plugins.models.ProjectToBuildModel;
+import com.amcbridge.jenkins.plugins.models.UserAccessModel;
+
+/**
+ * Shares the strings repeated across configurations kept in memory: creators, SCMs, repository URLs,
+ * branches, credentials, builders, platforms and paths. Node selections are already compact,
+ * see {@link com.amcbridge.jenkins.plugins.models.NodeSelection}.
+ */
+final class ConfigurationCompactor {
+
+    private ConfigurationCompactor() {
+    }
+
+    static void compact(BuildConfigurationModel config) {
+        config.setCreator(intern(config.getCreator()));
+        config.setScm(intern(config.getScm()));
+        config.setScriptType(intern(config.getScriptType()));
+        config.setPollSCMTrigger(intern(config.getPollSCMTrigger()));
+        config.setBuildPeriodicallyTrigger(intern(config.getBuildPeriodicallyTrigger()));
+        if (config.getUserWithAccess() != null) {
+            for (UserAccessModel user : config.getUserWithAccess()) {
+                if (user != null) {
+                    user.setUserName(intern(user.getUserName()));
+                }
+            }
+        }
+        if (config.getProjectToBuild() == null) {
+            return;
+        }
+        for (ProjectToBuildModel project : config.getProjectToBuild()) {
+            project.setProjectUrl(intern(project.getProjectUrl()));
+            project.setBranchName(intern(project.getBranchName()));
+            project.setCredentials(intern(project.getCredentials()));
+            project.setFileToBuild(intern(project.getFileToBuild()));
+            project.setLocalDirectoryPath(intern(project.getLocalDirectoryPath()));
+            project.setArtifacts(intern(project.getArtifacts()));
+            project.setVersionFiles(intern(project.getVersionFiles()));
+            if (project.getBuilders() == null) {
+                continue;
+            }
+            for (BuilderConfigModel builder : project.getBuilders()) {
+                builder.setBuilder(intern(builder.getBuilder()));
+                builder.setPlatform(intern(builder.getPlatform()));
+                builder.setBuilderArgs(intern(builder.getBuilderArgs()));
+            }
+        }
+    }
+
+    static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+
+    private static String[] intern(String[] values) {
+        if (values == null) {
+            return null;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = intern(values[i]);
+        }
+        return values;
+    }
+}
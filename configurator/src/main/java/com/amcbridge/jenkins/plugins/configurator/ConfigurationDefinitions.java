@@ -0,0 +1,96 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.SearchField;
+import com.amcbridge.jenkins.plugins.exceptions.JenkinsInstanceNotFoundException;
+import com.amcbridge.jenkins.plugins.xstreamelements.Builder;
+import com.amcbridge.jenkins.plugins.xstreamelements.BuilderLoader;
+import com.amcbridge.jenkins.plugins.xstreamelements.Platform;
+import com.amcbridge.jenkins.plugins.xstreamelements.PlatformLoader;
+import com.amcbridge.jenkins.plugins.xstreamelements.SCM;
+import com.amcbridge.jenkins.plugins.xstreamelements.SCMLoader;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The builders, platforms and SCMs defined in the plugin config files, as configurations refer to them.
+ * A copy is recorded after jobs are regenerated so the next regeneration can tell which definitions
+ * changed and touch only the configurations depending on them.
+ */
+final class ConfigurationDefinitions {
+
+    private static final String RECORD_FILE_NAME = ".definitions.xml";
+
+    private final Map<String, String> builders = new HashMap<>();
+    private final Map<String, String> scms = new HashMap<>();
+    private final Set<String> platforms = new HashSet<>();
+
+    private ConfigurationDefinitions() {
+    }
+
+    /**
+     * Reads the definitions from Builders.xml, SCM.xml and Platforms.xml.
+     */
+    static ConfigurationDefinitions load() throws JenkinsInstanceNotFoundException {
+        ConfigurationDefinitions definitions = new ConfigurationDefinitions();
+        for (Builder builder : new BuilderLoader().getBuilders()) {
+            definitions.builders.put(builder.getValue(), builder.getKey());
+        }
+        for (SCM scm : new SCMLoader().getSCMs()) {
+            definitions.scms.put(scm.getValue(), scm.getKey());
+        }
+        for (Platform platform : new PlatformLoader().getPlatformList()) {
+            definitions.platforms.add(platform.getPlatformName());
+        }
+        return definitions;
+    }
+
+    /**
+     * The definitions recorded by {@link #record()}, or null if they were never recorded.
+     */
+    static ConfigurationDefinitions loadRecorded() throws IOException {
+        XmlFile file = new XmlFile(Jenkins.XSTREAM, getRecordFile());
+        return file.exists() ? (ConfigurationDefinitions) file.read() : null;
+    }
+
+    void record() throws IOException {
+        ConfigurationWriter.getInstance().write(getRecordFile(), this);
+    }
+
+    /**
+     * The entries changed or removed since the given definitions, as values of the
+     * {@link SearchField} they are referenced by.
+     */
+    Map<SearchField, Set<String>> changedSince(ConfigurationDefinitions previous) {
+        Map<SearchField, Set<String>> changed = new EnumMap<>(SearchField.class);
+        changed.put(SearchField.BUILDER, changedKeys(previous.builders, builders));
+        changed.put(SearchField.SCM, changedKeys(previous.scms, scms));
+        Set<String> removedPlatforms = new TreeSet<>(previous.platforms);
+        removedPlatforms.removeAll(platforms);
+        changed.put(SearchField.PLATFORM, removedPlatforms);
+        return changed;
+    }
+
+    private static Set<String> changedKeys(Map<String, String> previous, Map<String, String> current) {
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+            if (!StringUtils.equals(entry.getValue(), current.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    private static File getRecordFile() throws JenkinsInstanceNotFoundException {
+        return new File(BuildConfigurationManager.getRootDir(), RECORD_FILE_NAME);
+    }
+}
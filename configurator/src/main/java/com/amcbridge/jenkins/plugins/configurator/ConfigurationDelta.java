@@ -0,0 +1,197 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ProjectToBuildModel;
+import jenkins.model.Jenkins;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Structural difference between two versions of a configuration: the top-level fields which changed
+ * and the projects to build which were added, changed or removed, matched by their GUID.
+ * Projects are stored whole, so applying a delta never needs to look inside a project.
+ * Whether the job is up to date is bookkeeping rather than part of the configuration and is left out.
+ */
+final class ConfigurationDelta {
+
+    private static final String PROJECT_TO_BUILD_FIELD = "projectToBuild";
+    private static final String JOB_UPDATE_FIELD = "isJobUpdate";
+    private static final List<Field> FIELDS = getModelFields();
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private final List<ProjectToBuildModel> changedProjects = new ArrayList<>();
+    private final List<UUID> removedProjects = new ArrayList<>();
+    private List<UUID> projectOrder;
+
+    private ConfigurationDelta() {
+    }
+
+    static ConfigurationDelta between(BuildConfigurationModel from, BuildConfigurationModel to) {
+        ConfigurationDelta delta = new ConfigurationDelta();
+        for (Field field : FIELDS) {
+            Object oldValue = getValue(field, from);
+            Object newValue = getValue(field, to);
+            if (!isSame(oldValue, newValue)) {
+                delta.fields.put(field.getName(), newValue);
+            }
+        }
+        if (!hasGuids(from.getProjectToBuild()) || !hasGuids(to.getProjectToBuild())) {
+            if (!isSame(from.getProjectToBuild(), to.getProjectToBuild())) {
+                delta.fields.put(PROJECT_TO_BUILD_FIELD, to.getProjectToBuild());
+            }
+            return delta;
+        }
+        Map<UUID, ProjectToBuildModel> oldProjects = mapProjects(from.getProjectToBuild());
+        List<UUID> order = new ArrayList<>();
+        if (to.getProjectToBuild() != null) {
+            for (ProjectToBuildModel project : to.getProjectToBuild()) {
+                order.add(project.getGuid());
+                ProjectToBuildModel oldProject = oldProjects.remove(project.getGuid());
+                if (oldProject == null || !isSame(oldProject, project)) {
+                    delta.changedProjects.add(project);
+                }
+            }
+        }
+        delta.removedProjects.addAll(oldProjects.keySet());
+        if (!order.equals(getOrder(from.getProjectToBuild()))) {
+            delta.projectOrder = order;
+        }
+        return delta;
+    }
+
+    boolean isEmpty() {
+        return fields.isEmpty() && changedProjects.isEmpty() && removedProjects.isEmpty() && projectOrder == null;
+    }
+
+    /**
+     * Names of the top-level fields changed by this delta; "projectToBuild" if any project changed.
+     */
+    List<String> getChangedFields() {
+        List<String> names = new ArrayList<>(fields.keySet());
+        if (!names.contains(PROJECT_TO_BUILD_FIELD)
+                && (!changedProjects.isEmpty() || !removedProjects.isEmpty() || projectOrder != null)) {
+            names.add(PROJECT_TO_BUILD_FIELD);
+        }
+        return names;
+    }
+
+    /**
+     * Applies the delta to a copy of the model; the model itself is left untouched.
+     */
+    BuildConfigurationModel applyTo(BuildConfigurationModel model) {
+        BuildConfigurationModel result = ConfigurationRegistry.copy(model);
+        for (Field field : FIELDS) {
+            if (fields.containsKey(field.getName())) {
+                setValue(field, result, copyValue(fields.get(field.getName())));
+            }
+        }
+        if (fields.containsKey(PROJECT_TO_BUILD_FIELD)) {
+            @SuppressWarnings("unchecked")
+            List<ProjectToBuildModel> projects = (List<ProjectToBuildModel>) copyValue(fields.get(PROJECT_TO_BUILD_FIELD));
+            result.setProjectToBuild(projects);
+            return result;
+        }
+        if (changedProjects.isEmpty() && removedProjects.isEmpty() && projectOrder == null) {
+            return result;
+        }
+        Map<UUID, ProjectToBuildModel> projects = mapProjects(result.getProjectToBuild());
+        for (UUID guid : removedProjects) {
+            projects.remove(guid);
+        }
+        for (ProjectToBuildModel project : changedProjects) {
+            projects.put(project.getGuid(), (ProjectToBuildModel) copyValue(project));
+        }
+        List<UUID> order = projectOrder != null ? projectOrder : getOrder(result.getProjectToBuild());
+        List<ProjectToBuildModel> ordered = new ArrayList<>(projects.size());
+        for (UUID guid : order) {
+            ProjectToBuildModel project = projects.remove(guid);
+            if (project != null) {
+                ordered.add(project);
+            }
+        }
+        // projects added by this delta when the order didn't change can't be in the old order
+        ordered.addAll(projects.values());
+        result.setProjectToBuild(ordered);
+        return result;
+    }
+
+    private static List<Field> getModelFields() {
+        List<Field> result = new ArrayList<>();
+        for (Field field : BuildConfigurationModel.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                    || PROJECT_TO_BUILD_FIELD.equals(field.getName()) || JOB_UPDATE_FIELD.equals(field.getName())) {
+                continue;
+            }
+            field.setAccessible(true);
+            result.add(field);
+        }
+        return result;
+    }
+
+    private static Object getValue(Field field, BuildConfigurationModel model) {
+        try {
+            return field.get(model);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void setValue(Field field, BuildConfigurationModel model, Object value) {
+        try {
+            field.set(model, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isSame(Object value1, Object value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == value2;
+        }
+        return Jenkins.XSTREAM.toXML(value1).equals(Jenkins.XSTREAM.toXML(value2));
+    }
+
+    private static Object copyValue(Object value) {
+        return value == null ? null : Jenkins.XSTREAM.fromXML(Jenkins.XSTREAM.toXML(value));
+    }
+
+    private static boolean hasGuids(List<ProjectToBuildModel> projects) {
+        if (projects == null) {
+            return true;
+        }
+        for (ProjectToBuildModel project : projects) {
+            if (project == null || project.getGuid() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<UUID, ProjectToBuildModel> mapProjects(List<ProjectToBuildModel> projects) {
+        Map<UUID, ProjectToBuildModel> result = new HashMap<>();
+        if (projects != null) {
+            for (ProjectToBuildModel project : projects) {
+                result.put(project.getGuid(), project);
+            }
+        }
+        return result;
+    }
+
+    private static List<UUID> getOrder(List<ProjectToBuildModel> projects) {
+        List<UUID> order = new ArrayList<>();
+        if (projects != null) {
+            for (ProjectToBuildModel project : projects) {
+                order.add(project.getGuid());
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,41 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+
+final class ConfigurationEntry {
+
+    private final ConfigurationSummaryModel summary;
+    private final long lastModified;
+    private final long length;
+
+    ConfigurationEntry(ConfigurationSummaryModel summary, long lastModified, long length) {
+        this.summary = summary;
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    /**
+     * Reads the file into the given model and returns the entry describing it.
+     */
+    static ConfigurationEntry read(File file, BuildConfigurationModel model) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        new XmlFile(Jenkins.XSTREAM, file).unmarshal(model);
+        ConfigurationCompactor.compact(model);
+        return new ConfigurationEntry(ConfigurationSummaryModel.of(model), lastModified, length);
+    }
+
+    ConfigurationSummaryModel getSummary() {
+        return summary;
+    }
+
+    boolean isUpToDate(File file) {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+}
@@ -0,0 +1,232 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationChangeType;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangeModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationChangesPageModel;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only log of every change made to the configurations, one line per change in {@code .changes.log}
+ * under the plugin root directory. Changes are numbered in the order they happen; the most recent ones
+ * are also kept in memory, so clients polling for what changed since their last visit rarely touch the disk.
+ */
+final class ConfigurationJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationJournal.class);
+    private static final String JOURNAL_FILE_NAME = ".changes.log";
+    private static final String SEPARATOR = "\t";
+    private static final String USER_SEPARATOR = "\u001f";
+    private static final int MEMORY_CAPACITY = 4096;
+    private static final ConfigurationJournal instance = new ConfigurationJournal();
+
+    private final Deque<ConfigurationChangeModel> recent = new ArrayDeque<>();
+    private long lastSequence = -1;
+    private boolean open;
+
+    private ConfigurationJournal() {
+    }
+
+    static ConfigurationJournal getInstance() {
+        return instance;
+    }
+
+    /**
+     * Decides which changes go into a page, e.g. the ones the current user may see.
+     */
+    interface Filter {
+        boolean accept(ConfigurationChangeModel change);
+    }
+
+    /**
+     * Records the change, synced to the disk before returning.
+     */
+    ConfigurationChangeModel append(String name, ConfigurationChangeType type) throws IOException {
+        return append(name, type, Collections.<String>emptySet());
+    }
+
+    /**
+     * Like {@link #append(String, ConfigurationChangeType)}, recording who could see the configuration,
+     * for changes after which the configuration can't tell anymore.
+     */
+    synchronized ConfigurationChangeModel append(String name, ConfigurationChangeType type,
+                                                 Set<String> usersWithAccess) throws IOException {
+        ensureOpen();
+        ConfigurationChangeModel change = new ConfigurationChangeModel(lastSequence + 1, System.currentTimeMillis(),
+                name, type, BuildConfigurationManager.getCurrentUserID(), usersWithAccess);
+        appendSynced(getJournalFile(), format(change, usersWithAccess));
+        lastSequence = change.getSequence();
+        remember(change);
+        return change;
+    }
+
+    /**
+     * Up to {@code limit} changes accepted by the filter and numbered above the given sequence number,
+     * oldest first. Changes are looked at until the page is full, so a page is only short at the end
+     * of the journal; the page tells where the next one starts. Appends don't wait for the page:
+     * only copying the recent changes or taking the length of the journal is done holding the journal.
+     *
+     * @param sequence number of the last change already seen, -1 for all changes
+     */
+    ConfigurationChangesPageModel getChangesSince(long sequence, int limit, Filter filter) throws IOException {
+        List<ConfigurationChangeModel> candidates = null;
+        long length;
+        synchronized (this) {
+            ensureOpen();
+            if (!recent.isEmpty() && sequence >= recent.getFirst().getSequence() - 1) {
+                candidates = new ArrayList<>(recent);
+            }
+            // every line up to here is complete, appends are made holding the journal
+            length = getJournalFile().length();
+        }
+        List<ConfigurationChangeModel> changes = new ArrayList<>();
+        long last = sequence;
+        if (candidates != null) {
+            for (ConfigurationChangeModel change : candidates) {
+                if (changes.size() >= limit) {
+                    break;
+                }
+                if (change.getSequence() > sequence) {
+                    last = change.getSequence();
+                    if (filter.accept(change)) {
+                        changes.add(change);
+                    }
+                }
+            }
+            return new ConfigurationChangesPageModel(changes, last);
+        }
+        if (length == 0) {
+            return new ConfigurationChangesPageModel(changes, last);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new BoundedInputStream(new FileInputStream(getJournalFile()), length), StandardCharsets.UTF_8))) {
+            String line;
+            while (changes.size() < limit && (line = reader.readLine()) != null) {
+                ConfigurationChangeModel change = parse(line);
+                if (change != null && change.getSequence() > sequence) {
+                    last = change.getSequence();
+                    if (filter.accept(change)) {
+                        changes.add(change);
+                    }
+                }
+            }
+        }
+        return new ConfigurationChangesPageModel(changes, last);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (open) {
+            return;
+        }
+        File file = getJournalFile();
+        if (!file.exists()) {
+            open = true;
+            return;
+        }
+        terminateLastLine(file);
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ConfigurationChangeModel change = parse(line);
+                if (change != null) {
+                    lastSequence = change.getSequence();
+                    remember(change);
+                }
+            }
+        }
+        open = true;
+    }
+
+    /**
+     * Appends the lines to the file and syncs it before returning.
+     */
+    static void appendSynced(File file, String lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Ends a line left unfinished by a crash, so the next line appended starts on a line of its own.
+     */
+    static void terminateLastLine(File file) throws IOException {
+        try (RandomAccessFile journal = new RandomAccessFile(file, "rw")) {
+            long length = journal.length();
+            if (length == 0) {
+                return;
+            }
+            journal.seek(length - 1);
+            if (journal.read() != '\n') {
+                journal.write('\n');
+            }
+        }
+    }
+
+    private void remember(ConfigurationChangeModel change) {
+        recent.addLast(change);
+        if (recent.size() > MEMORY_CAPACITY) {
+            recent.removeFirst();
+        }
+    }
+
+    private static String format(ConfigurationChangeModel change, Set<String> usersWithAccess) {
+        StringBuilder users = new StringBuilder();
+        for (String user : usersWithAccess) {
+            if (users.length() > 0) {
+                users.append(USER_SEPARATOR);
+            }
+            users.append(user.replaceAll("[\t\r\n\u001f]", " "));
+        }
+        return change.getSequence() + SEPARATOR + change.getTimestamp() + SEPARATOR + change.getType().name()
+                + SEPARATOR + change.getUser() + SEPARATOR + users + SEPARATOR
+                + change.getName().replaceAll("[\t\r\n]", " ") + "\n";
+    }
+
+    private static ConfigurationChangeModel parse(String line) {
+        String[] fields = line.split(SEPARATOR, 6);
+        if (fields.length < 6) {
+            return null;
+        }
+        try {
+            Set<String> usersWithAccess = new HashSet<>();
+            if (!fields[4].isEmpty()) {
+                Collections.addAll(usersWithAccess, fields[4].split(USER_SEPARATOR));
+            }
+            return new ConfigurationChangeModel(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                    fields[5], ConfigurationChangeType.valueOf(fields[2]), fields[3], usersWithAccess);
+        } catch (IllegalArgumentException e) {
+            // a line cut short by a crash while it was being written
+            logger.warn("Skipping unreadable configuration journal line: " + line);
+            return null;
+        }
+    }
+
+    private static File getJournalFile() throws IOException {
+        return new File(BuildConfigurationManager.getRootDir(), JOURNAL_FILE_NAME);
+    }
+}
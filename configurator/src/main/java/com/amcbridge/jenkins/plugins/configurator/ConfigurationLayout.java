@@ -0,0 +1,202 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.exceptions.JenkinsInstanceNotFoundException;
+import org.apache.commons.io.filefilter.DirectoryFileFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Decides where the directory of each configuration lives. In the flat layout every configuration is
+ * a direct child of the plugin root directory. In the sharded layout it is placed two levels deeper,
+ * {@code .shards/ab/cd/<name>}, where {@code abcd} starts the MD5 hash of the name, so no directory
+ * holds more than a few entries. The sharded layout is used once the {@code .shards} directory exists,
+ * either created by {@link #migrateToSharded()} or on the first save when the
+ * {@code ConfigurationLayout.sharded} system property is set. Both layouts are always read,
+ * so configurations can be moved while the plugin is in use.
+ */
+final class ConfigurationLayout {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationLayout.class);
+    private static final String SHARDS_DIRECTORY_NAME = ".shards";
+    private static final boolean SHARDED_BY_DEFAULT = Boolean.getBoolean(ConfigurationLayout.class.getName() + ".sharded");
+    private static final FileFilter VISIBLE_DIRECTORIES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return DirectoryFileFilter.DIRECTORY.accept(file) && !file.getName().startsWith(".");
+        }
+    };
+    private static final ConfigurationLayout instance = new ConfigurationLayout();
+
+    private final ConcurrentMap<String, File> directories = new ConcurrentHashMap<>();
+    private final AtomicInteger migrated = new AtomicInteger();
+    private final AtomicInteger toMigrate = new AtomicInteger();
+    private volatile boolean migrating;
+
+    private ConfigurationLayout() {
+    }
+
+    static ConfigurationLayout getInstance() {
+        return instance;
+    }
+
+    /**
+     * Directory of the configuration, whether it exists yet or not.
+     */
+    File getDirectory(String name) throws JenkinsInstanceNotFoundException {
+        File directory = directories.get(name);
+        if (directory != null && directory.exists()) {
+            return directory;
+        }
+        File root = BuildConfigurationManager.getRootDir();
+        File sharded = getShardedDirectory(root, name);
+        File flat = new File(root, name);
+        // a configuration being migrated is renamed atomically, so it's always found in one of the two places
+        if (sharded.exists()) {
+            directory = sharded;
+        } else if (flat.exists()) {
+            directory = flat;
+        } else {
+            return isSharded(root) ? sharded : flat;
+        }
+        directories.put(name, directory);
+        return directory;
+    }
+
+    /**
+     * Directories of all configurations in both layouts.
+     */
+    List<File> listDirectories() throws JenkinsInstanceNotFoundException {
+        File root = BuildConfigurationManager.getRootDir();
+        List<File> result = new ArrayList<>();
+        for (File directory : listVisibleDirectories(root)) {
+            result.add(directory);
+        }
+        for (File first : listVisibleDirectories(new File(root, SHARDS_DIRECTORY_NAME))) {
+            for (File second : listVisibleDirectories(first)) {
+                for (File directory : listVisibleDirectories(second)) {
+                    result.add(directory);
+                }
+            }
+        }
+        for (File directory : result) {
+            directories.put(directory.getName(), directory);
+        }
+        return result;
+    }
+
+    void remove(String name) {
+        directories.remove(name);
+    }
+
+    /**
+     * Moves every configuration of the flat layout into its shard. Each move happens under the lock
+     * of the configuration, so concurrent saves either finish before it or go to the new place.
+     *
+     * @return false if a migration is already running
+     */
+    boolean migrateToSharded() throws IOException {
+        synchronized (this) {
+            if (migrating) {
+                return false;
+            }
+            migrating = true;
+        }
+        try {
+            File root = BuildConfigurationManager.getRootDir();
+            File shards = new File(root, SHARDS_DIRECTORY_NAME);
+            if (!shards.exists() && !shards.mkdirs()) {
+                throw new IOException("Unable to create path:" + shards.getPath());
+            }
+            List<File> flat = new ArrayList<>();
+            for (File directory : listVisibleDirectories(root)) {
+                if (new File(directory, BuildConfigurationManager.CONFIG_FILE_NAME).exists()) {
+                    flat.add(directory);
+                }
+            }
+            migrated.set(0);
+            toMigrate.set(flat.size());
+            logger.info("Moving " + flat.size() + " build configurations to the sharded layout");
+            for (File directory : flat) {
+                move(root, directory.getName());
+                migrated.incrementAndGet();
+            }
+            logger.info("Build configurations moved to the sharded layout: " + migrated.get());
+            return true;
+        } finally {
+            migrating = false;
+        }
+    }
+
+    boolean isMigrating() {
+        return migrating;
+    }
+
+    /**
+     * Progress of the running or last migration as "moved/total".
+     */
+    String getMigrationStatus() {
+        return migrated.get() + "/" + toMigrate.get() + (migrating ? " (running)" : "");
+    }
+
+    private void move(File root, String name) throws IOException {
+        Lock lock = BuildConfigurationManager.lockConfiguration(name);
+        try {
+            File source = new File(root, name);
+            if (!source.exists()) {
+                return;
+            }
+            File target = getShardedDirectory(root, name);
+            File parent = target.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create path:" + parent.getPath());
+            }
+            if (target.exists()) {
+                logger.warn("Configuration " + name + " exists in both layouts, the flat copy is left in place");
+                return;
+            }
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            directories.put(name, target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isSharded(File root) {
+        return SHARDED_BY_DEFAULT || new File(root, SHARDS_DIRECTORY_NAME).isDirectory();
+    }
+
+    private static File getShardedDirectory(File root, String name) {
+        String hash = hash(name);
+        return new File(new File(new File(new File(root, SHARDS_DIRECTORY_NAME), hash.substring(0, 2)),
+                hash.substring(2, 4)), name);
+    }
+
+    private static String hash(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(name.getBytes(StandardCharsets.UTF_8));
+            return String.format("%02x%02x", digest[0] & 0xff, digest[1] & 0xff);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static File[] listVisibleDirectories(File parent) {
+        File[] result = parent.listFiles(VISIBLE_DIRECTORIES);
+        return result != null ? result : new File[0];
+    }
+}
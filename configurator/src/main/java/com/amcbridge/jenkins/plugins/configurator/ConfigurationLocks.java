@@ -0,0 +1,45 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by configuration names, so changes of one configuration are serialized
+ * while changes of different configurations mostly don't wait for each other.
+ * Only writers take the locks; readers get consistent snapshots from {@link ConfigurationRegistry}.
+ */
+final class ConfigurationLocks {
+
+    private static final int STRIPES = Integer.getInteger(ConfigurationLocks.class.getName() + ".stripes", 64);
+
+    private final Lock[] locks;
+    private final int mask;
+
+    ConfigurationLocks() {
+        this(STRIPES);
+    }
+
+    ConfigurationLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    Lock get(String name) {
+        int hash = name.hashCode();
+        hash ^= (hash >>> 16);
+        return locks[hash & mask];
+    }
+
+    /**
+     * Acquires the lock of the configuration; the caller must unlock it in a finally block.
+     */
+    Lock lock(String name) {
+        Lock lock = get(name);
+        lock.lock();
+        return lock;
+    }
+}
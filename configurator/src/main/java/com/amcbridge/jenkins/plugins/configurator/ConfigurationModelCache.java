@@ -0,0 +1,54 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the most recently used full configuration models.
+ * A model is only returned together with the registry entry it was read for,
+ * so a model left over from an older version of the file is never served.
+ */
+final class ConfigurationModelCache {
+
+    private static final int CAPACITY = Integer.getInteger(ConfigurationModelCache.class.getName() + ".capacity", 256);
+
+    private final Map<String, CachedModel> models;
+
+    private static final class CachedModel {
+        private final ConfigurationEntry entry;
+        private final BuildConfigurationModel model;
+
+        private CachedModel(ConfigurationEntry entry, BuildConfigurationModel model) {
+            this.entry = entry;
+            this.model = model;
+        }
+    }
+
+    ConfigurationModelCache() {
+        this(CAPACITY);
+    }
+
+    ConfigurationModelCache(final int capacity) {
+        models = new LinkedHashMap<String, CachedModel>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedModel> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized BuildConfigurationModel get(String name, ConfigurationEntry entry) {
+        CachedModel cached = models.get(name);
+        return cached != null && cached.entry == entry ? cached.model : null;
+    }
+
+    synchronized void put(String name, ConfigurationEntry entry, BuildConfigurationModel model) {
+        models.put(name, new CachedModel(entry, model));
+    }
+
+    synchronized void remove(String name) {
+        models.remove(name);
+    }
+}
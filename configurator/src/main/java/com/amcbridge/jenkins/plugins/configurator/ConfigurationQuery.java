@@ -0,0 +1,191 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationSortField;
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+import com.amcbridge.jenkins.plugins.enums.SearchField;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+import org.apache.commons.lang.StringUtils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter, sort order and page bounds of a configurations listing request.
+ * Empty filter values match every configuration.
+ */
+public class ConfigurationQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private int offset;
+    private int limit = DEFAULT_PAGE_SIZE;
+    private ConfigurationSortField sortField = ConfigurationSortField.NAME;
+    private boolean descending;
+    private ConfigurationState state;
+    private String scm;
+    private String builder;
+    private String node;
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = Math.max(0, offset);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    }
+
+    public ConfigurationSortField getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(ConfigurationSortField sortField) {
+        this.sortField = sortField != null ? sortField : ConfigurationSortField.NAME;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public ConfigurationState getState() {
+        return state;
+    }
+
+    public void setState(ConfigurationState state) {
+        this.state = state;
+    }
+
+    public String getScm() {
+        return scm;
+    }
+
+    public void setScm(String scm) {
+        this.scm = StringUtils.trimToNull(scm);
+    }
+
+    public String getBuilder() {
+        return builder;
+    }
+
+    public void setBuilder(String builder) {
+        this.builder = StringUtils.trimToNull(builder);
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = StringUtils.trimToNull(node);
+    }
+
+    /**
+     * The filters answered by {@link ConfigurationSearchIndex}, by field.
+     */
+    Map<SearchField, String> getSearchFilters() {
+        Map<SearchField, String> filters = new EnumMap<>(SearchField.class);
+        if (scm != null) {
+            filters.put(SearchField.SCM, scm);
+        }
+        if (builder != null) {
+            filters.put(SearchField.BUILDER, builder);
+        }
+        if (node != null) {
+            filters.put(SearchField.NODE, node);
+        }
+        return filters;
+    }
+
+    /**
+     * Checks the filters not covered by {@link #getSearchFilters()}.
+     */
+    boolean matches(ConfigurationSummaryModel config) {
+        return state == null || state == config.getState();
+    }
+
+    /**
+     * Sorts the configurations in place. Configurations come from the registry already ordered by name,
+     * so the ascending name order needs no work.
+     *
+     * @param creatorNames creator id to display name, used for the creator order
+     */
+    void sort(List<ConfigurationSummaryModel> configs, final Map<String, String> creatorNames) {
+        Comparator<ConfigurationSummaryModel> comparator;
+        switch (sortField) {
+            case STATE:
+                comparator = new Comparator<ConfigurationSummaryModel>() {
+                    @Override
+                    public int compare(ConfigurationSummaryModel o1, ConfigurationSummaryModel o2) {
+                        return compareValues(o1.getState(), o2.getState());
+                    }
+                };
+                break;
+            case DATE:
+                final Map<ConfigurationSummaryModel, Long> dates = parseDates(configs);
+                comparator = new Comparator<ConfigurationSummaryModel>() {
+                    @Override
+                    public int compare(ConfigurationSummaryModel o1, ConfigurationSummaryModel o2) {
+                        return compareValues(dates.get(o1), dates.get(o2));
+                    }
+                };
+                break;
+            case CREATOR:
+                comparator = new Comparator<ConfigurationSummaryModel>() {
+                    @Override
+                    public int compare(ConfigurationSummaryModel o1, ConfigurationSummaryModel o2) {
+                        return compareValues(creatorNames.get(o1.getCreator()), creatorNames.get(o2.getCreator()));
+                    }
+                };
+                break;
+            default:
+                if (descending) {
+                    Collections.reverse(configs);
+                }
+                return;
+        }
+        // the sort is stable, so equal keys stay ordered by name
+        Collections.sort(configs, descending ? Collections.reverseOrder(comparator) : comparator);
+    }
+
+    private static Map<ConfigurationSummaryModel, Long> parseDates(List<ConfigurationSummaryModel> configs) {
+        SimpleDateFormat format = new SimpleDateFormat(BuildConfigurationManager.DATE_FORMAT);
+        Map<ConfigurationSummaryModel, Long> dates = new IdentityHashMap<>(configs.size());
+        for (ConfigurationSummaryModel config : configs) {
+            long time = 0;
+            if (config.getDate() != null) {
+                try {
+                    time = format.parse(config.getDate()).getTime();
+                } catch (ParseException e) {
+                    time = 0;
+                }
+            }
+            dates.put(config, time);
+        }
+        return dates;
+    }
+
+    private static <T extends Comparable<T>> int compareValues(T value1, T value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : -1;
+        }
+        return value2 == null ? 1 : value1.compareTo(value2);
+    }
+}
@@ -0,0 +1,233 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import jenkins.model.Jenkins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process-wide cache of all build configurations, keyed by project name.
+ * Filled once on plugin start, updated by {@link BuildConfigurationManager} on every save and delete,
+ * and re-synchronized with the disk by {@link ConfigurationRegistryWatcher} to pick up hand edits.
+ * Every configuration is kept as a {@link ConfigurationSummaryModel}; full models are read on demand
+ * and only the recently used ones stay in memory.
+ * Models returned from the registry are shared and must not be modified.
+ */
+public final class ConfigurationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationRegistry.class);
+    private static final ConfigurationRegistry instance = new ConfigurationRegistry();
+
+    private final ConcurrentNavigableMap<String, ConfigurationEntry> configurations = new ConcurrentSkipListMap<>();
+    private final ConfigurationAccessIndex accessIndex = new ConfigurationAccessIndex();
+    private final ConfigurationSearchIndex searchIndex = new ConfigurationSearchIndex();
+    private final ConfigurationModelCache models = new ConfigurationModelCache();
+    private volatile boolean loaded;
+
+    private ConfigurationRegistry() {
+    }
+
+    static ConfigurationRegistry getInstance() {
+        return instance;
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void init() {
+        try {
+            instance.reload();
+        } catch (IOException e) {
+            logger.error("Error loading build configurations", e);
+            return;
+        }
+        ConfigurationRevisionStore.getInstance().migrateLegacyHistory(instance.configurations.keySet());
+    }
+
+    /**
+     * Returns the full model, read from the disk if it isn't among the recently used ones,
+     * or null if there is no such configuration.
+     */
+    BuildConfigurationModel get(String name) throws IOException {
+        ensureLoaded();
+        File file = BuildConfigurationManager.getConfigFileFor(name);
+        ConfigurationEntry entry = configurations.get(name);
+        if (entry != null && entry.isUpToDate(file)) {
+            BuildConfigurationModel model = models.get(name, entry);
+            if (model != null) {
+                return model;
+            }
+        }
+        if (!file.exists()) {
+            evict(name);
+            return null;
+        }
+        BuildConfigurationModel model = new BuildConfigurationModel();
+        entry = ConfigurationEntry.read(file, model);
+        store(name, entry);
+        models.put(name, entry, model);
+        return model;
+    }
+
+    /**
+     * Returns the summary kept in memory without checking the file on disk,
+     * or null if there is no such configuration.
+     */
+    ConfigurationSummaryModel getSummary(String name) throws IOException {
+        ensureLoaded();
+        ConfigurationEntry entry = configurations.get(name);
+        return entry != null ? entry.getSummary() : null;
+    }
+
+    List<ConfigurationSummaryModel> getSummaries() throws IOException {
+        ensureLoaded();
+        List<ConfigurationSummaryModel> result = new ArrayList<>(configurations.size());
+        for (ConfigurationEntry entry : configurations.values()) {
+            result.add(entry.getSummary());
+        }
+        return result;
+    }
+
+    Set<String> getNames() throws IOException {
+        ensureLoaded();
+        return configurations.keySet();
+    }
+
+    ConfigurationAccessIndex getAccessIndex() throws IOException {
+        ensureLoaded();
+        return accessIndex;
+    }
+
+    ConfigurationSearchIndex getSearchIndex() throws IOException {
+        ensureLoaded();
+        return searchIndex;
+    }
+
+    void put(BuildConfigurationModel config) throws IOException {
+        BuildConfigurationModel model = copy(config);
+        ConfigurationCompactor.compact(model);
+        putOwned(model);
+    }
+
+    /**
+     * Like {@link #put}, for a model nobody else holds, such as one just parsed, so it's cached without a copy.
+     */
+    void putOwned(BuildConfigurationModel model) throws IOException {
+        File file = BuildConfigurationManager.getConfigFileFor(model.getProjectName());
+        ConfigurationEntry entry = new ConfigurationEntry(ConfigurationSummaryModel.of(model), file.lastModified(),
+                file.length());
+        store(model.getProjectName(), entry);
+        models.put(model.getProjectName(), entry, model);
+    }
+
+    void remove(String name) {
+        evict(name);
+    }
+
+    private void store(String name, ConfigurationEntry entry) {
+        configurations.put(name, entry);
+        accessIndex.update(entry.getSummary());
+        searchIndex.update(entry.getSummary());
+    }
+
+    private void evict(String name) {
+        configurations.remove(name);
+        accessIndex.remove(name);
+        searchIndex.remove(name);
+        models.remove(name);
+    }
+
+    private void storeAll(Map<String, ConfigurationEntry> entries) {
+        for (Map.Entry<String, ConfigurationEntry> entry : entries.entrySet()) {
+            store(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized void reload() throws IOException {
+        List<File> directories = new ArrayList<>();
+        for (File directory : listConfigurationDirectories()) {
+            if (new File(directory, BuildConfigurationManager.CONFIG_FILE_NAME).exists()) {
+                directories.add(directory);
+            }
+        }
+        ConfigurationBulkLoader.Result result = loadAll(directories);
+        storeAll(result.getLoaded());
+        for (String name : configurations.keySet()) {
+            if (!result.getLoaded().containsKey(name)) {
+                evict(name);
+            }
+        }
+        loaded = true;
+        logger.info("Build configurations loaded: " + result.getLoaded().size() + ", failed: "
+                + result.getFailures().size() + ", time: " + result.getElapsedMillis() + " ms");
+    }
+
+    /**
+     * Brings the registry in line with the disk: reloads configurations whose file changed,
+     * adds new ones and drops the ones which were removed outside of the plugin.
+     */
+    synchronized void refresh() throws IOException {
+        if (!loaded) {
+            reload();
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        List<File> changed = new ArrayList<>();
+        for (File directory : listConfigurationDirectories()) {
+            File file = new File(directory, BuildConfigurationManager.CONFIG_FILE_NAME);
+            if (!file.exists()) {
+                continue;
+            }
+            names.add(directory.getName());
+            ConfigurationEntry entry = configurations.get(directory.getName());
+            if (entry == null || !entry.isUpToDate(file)) {
+                changed.add(directory);
+            }
+        }
+        for (String name : configurations.keySet()) {
+            if (!names.contains(name) && !BuildConfigurationManager.getConfigFileFor(name).exists()) {
+                evict(name);
+            }
+        }
+        if (!changed.isEmpty()) {
+            ConfigurationBulkLoader.Result result = loadAll(changed);
+            storeAll(result.getLoaded());
+            logger.info("Build configurations changed on disk and reloaded: " + result.getLoaded().keySet());
+        }
+    }
+
+    private static ConfigurationBulkLoader.Result loadAll(List<File> directories) {
+        ConfigurationBulkLoader loader = new ConfigurationBulkLoader(new ConfigurationBulkLoader.LoggingProgressListener());
+        return loader.load(directories.toArray(new File[directories.size()]));
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private static List<File> listConfigurationDirectories() throws IOException {
+        return ConfigurationLayout.getInstance().listDirectories();
+    }
+
+    static BuildConfigurationModel copy(BuildConfigurationModel config) {
+        return (BuildConfigurationModel) Jenkins.XSTREAM.fromXML(Jenkins.XSTREAM.toXML(config),
+                new BuildConfigurationModel());
+    }
+}
@@ -0,0 +1,19 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+
+@Extension
+public class ConfigurationRegistryWatcher extends PeriodicWork {
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        ConfigurationRegistry.getInstance().refresh();
+        BuildConfigurationManager.recordDefinitionsIfMissing();
+    }
+}
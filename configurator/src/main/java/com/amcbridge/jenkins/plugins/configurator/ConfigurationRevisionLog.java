@@ -0,0 +1,44 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.ConfigurationRevisionModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list of revisions of one configuration and the number of the last approved one,
+ * as read from its revision log and extended by every later save.
+ */
+final class ConfigurationRevisionLog {
+
+    private final List<ConfigurationRevisionModel> revisions = new ArrayList<>();
+    private int lastApproved;
+
+    synchronized List<ConfigurationRevisionModel> getRevisions() {
+        return new ArrayList<>(revisions);
+    }
+
+    synchronized ConfigurationRevisionModel getHead() {
+        return revisions.isEmpty() ? null : revisions.get(revisions.size() - 1);
+    }
+
+    synchronized ConfigurationRevisionModel getRevision(int number) {
+        int index = number - 1;
+        return index >= 0 && index < revisions.size() ? revisions.get(index) : null;
+    }
+
+    /**
+     * Number of the last approved revision, 0 if the configuration was never approved.
+     */
+    synchronized int getLastApproved() {
+        return lastApproved;
+    }
+
+    synchronized void append(ConfigurationRevisionModel revision) {
+        revisions.add(revision);
+    }
+
+    synchronized void approve(int number) {
+        lastApproved = number;
+    }
+}
@@ -0,0 +1,447 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationRevisionModel;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * History of every configuration, kept in the {@code revisions} directory next to its config.xml.
+ * The latest revision is config.xml itself; every older revision is stored as the {@link ConfigurationDelta}
+ * which turns the revision after it back into it, so the history costs only what changed between saves.
+ * Rebuilding an old revision applies the deltas from config.xml backwards, starting from the closest
+ * revision still cached. The revisions and approvals are appended to a log, one line each.
+ * A revision is recorded before config.xml is replaced, so a crash in between never loses the previous one;
+ * a recorded revision which never reached config.xml is dropped from the log when the log is read.
+ * Replaces the copy of the approved configuration formerly saved to the {@code diff} directory,
+ * which is converted into the first revisions by {@link #migrateLegacyHistory} when the plugin starts.
+ */
+final class ConfigurationRevisionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationRevisionStore.class);
+    private static final String REVISIONS_DIRECTORY_NAME = "revisions";
+    private static final String LOG_FILE_NAME = "revisions.log";
+    private static final String LEGACY_DIFF_DIRECTORY_NAME = "diff";
+    private static final String SEPARATOR = "\t";
+    private static final String REVISION_RECORD = "REVISION";
+    private static final String APPROVAL_RECORD = "APPROVED";
+    private static final int CACHE_CAPACITY = 64;
+    private static final ConfigurationRevisionStore instance = new ConfigurationRevisionStore();
+
+    private final ConcurrentMap<String, ConfigurationRevisionLog> logs = new ConcurrentHashMap<>();
+    private final Map<String, BuildConfigurationModel> revisionCache =
+            new LinkedHashMap<String, BuildConfigurationModel>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BuildConfigurationModel> eldest) {
+                    return size() > CACHE_CAPACITY;
+                }
+            };
+
+    private ConfigurationRevisionStore() {
+    }
+
+    static ConfigurationRevisionStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records the configuration about to be written to config.xml as a new revision; the caller holds the lock
+     * of the configuration and calls {@link #discard} if writing config.xml fails. Nothing is recorded when it
+     * equals the current content of config.xml, but the latest revision still becomes the approved one if
+     * {@code approved} is set.
+     *
+     * @param previous current content of config.xml, null for a new configuration
+     * @return false if the configuration equals the latest revision
+     */
+    boolean append(BuildConfigurationModel previous, BuildConfigurationModel config, boolean approved)
+            throws IOException {
+        String name = config.getProjectName();
+        Lock lock = BuildConfigurationManager.lockConfiguration(name);
+        try {
+            if (!getLogFile(name).exists()) {
+                migrateLegacyDiff(name, previous);
+            }
+            ConfigurationRevisionLog log = getLog(name);
+            ConfigurationRevisionModel head = log.getHead();
+            if (head != null) {
+                if (previous == null) {
+                    logger.warn("config.xml of " + name + " was missing, revision " + head.getNumber() + " is lost");
+                } else {
+                    ConfigurationDelta delta = ConfigurationDelta.between(config, previous);
+                    if (delta.isEmpty()) {
+                        if (approved && log.getLastApproved() != head.getNumber()) {
+                            appendRecords(name, formatApproval(head.getNumber()));
+                            log.approve(head.getNumber());
+                        }
+                        return false;
+                    }
+                    createRevisionsDirectory(name);
+                    ConfigurationWriter.getInstance().write(getRevisionFile(name, head.getNumber()), delta);
+                    cache(name, head.getNumber(), previous);
+                }
+            }
+            ConfigurationRevisionModel revision = new ConfigurationRevisionModel(
+                    head == null ? 1 : head.getNumber() + 1, System.currentTimeMillis(),
+                    BuildConfigurationManager.getCurrentUserID(), config.getState());
+            if (approved) {
+                appendRecords(name, formatRevision(revision), formatApproval(revision.getNumber()));
+            } else {
+                appendRecords(name, formatRevision(revision));
+            }
+            log.append(revision);
+            if (approved) {
+                log.approve(revision.getNumber());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the revisions read for the configuration after writing its config.xml failed,
+     * so the revision recorded for it is dropped when the log is read again.
+     */
+    void discard(String name) {
+        logs.remove(name);
+    }
+
+    List<ConfigurationRevisionModel> getRevisions(String name) throws IOException {
+        return getLog(name).getRevisions();
+    }
+
+    /**
+     * Returns the configuration as it was at the given revision, or null if there is no such revision.
+     * The returned model is shared and must not be modified.
+     */
+    BuildConfigurationModel getRevision(String name, int number) throws IOException {
+        // a save replaces config.xml and the delta of the previous head together
+        Lock lock = BuildConfigurationManager.lockConfiguration(name);
+        try {
+            ConfigurationRevisionLog log = getLog(name);
+            ConfigurationRevisionModel head = log.getHead();
+            if (log.getRevision(number) == null) {
+                return null;
+            }
+            if (number == head.getNumber()) {
+                return ConfigurationRegistry.getInstance().get(name);
+            }
+            BuildConfigurationModel cached = getCached(name, number);
+            if (cached != null) {
+                return cached;
+            }
+            int start = number;
+            BuildConfigurationModel model = null;
+            while (model == null && ++start < head.getNumber()) {
+                model = getCached(name, start);
+            }
+            if (model == null) {
+                model = ConfigurationRegistry.getInstance().get(name);
+                if (model == null) {
+                    return null;
+                }
+            }
+            for (int i = start - 1; i >= number; i--) {
+                File file = getRevisionFile(name, i);
+                if (!file.exists()) {
+                    return null;
+                }
+                model = readDelta(file).applyTo(model);
+            }
+            cache(name, number, model);
+            return model;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the last approved version of the configuration, or null if it was never approved.
+     * The returned model is shared and must not be modified.
+     */
+    BuildConfigurationModel getLastApproved(String name) throws IOException {
+        int lastApproved = getLog(name).getLastApproved();
+        if (lastApproved > 0) {
+            return getRevision(name, lastApproved);
+        }
+        File legacyFile = getLegacyFile(name);
+        if (getLogFile(name).exists() || !legacyFile.exists()) {
+            return null;
+        }
+        // not migrated yet
+        BuildConfigurationModel approved = new BuildConfigurationModel();
+        new XmlFile(Jenkins.XSTREAM, legacyFile).unmarshal(approved);
+        return approved;
+    }
+
+    /**
+     * Returns what changed between two revisions of the configuration.
+     */
+    ConfigurationDelta diff(String name, int from, int to) throws IOException {
+        BuildConfigurationModel fromModel;
+        BuildConfigurationModel toModel;
+        Lock lock = BuildConfigurationManager.lockConfiguration(name);
+        try {
+            fromModel = getRevision(name, from);
+            toModel = getRevision(name, to);
+        } finally {
+            lock.unlock();
+        }
+        if (fromModel == null || toModel == null) {
+            throw new IOException("No such revision of " + name);
+        }
+        return ConfigurationDelta.between(fromModel, toModel);
+    }
+
+    /**
+     * Forgets everything cached about the configuration, for when it is deleted.
+     */
+    void remove(String name) {
+        logs.remove(name);
+        synchronized (revisionCache) {
+            Iterator<String> keys = revisionCache.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().startsWith(name + "#")) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the approved copies kept in the {@code diff} directory by older versions of the plugin
+     * into revisions. Run once when the plugin starts; a configuration saved before it gets to it
+     * is converted by that save.
+     */
+    void migrateLegacyHistory(Collection<String> names) {
+        int migrated = 0;
+        for (String name : names) {
+            Lock lock = BuildConfigurationManager.lockConfiguration(name);
+            try {
+                if (!getLegacyFile(name).exists()) {
+                    continue;
+                }
+                if (migrateLegacyDiff(name, ConfigurationRegistry.getInstance().get(name))) {
+                    migrated++;
+                }
+            } catch (IOException e) {
+                logger.error("Approved copy of configuration " + name + " was not converted", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (migrated > 0) {
+            logger.info("Approved copies of configurations converted to revisions: " + migrated);
+        }
+    }
+
+    /**
+     * Turns the approved copy into revision 1 and the current config.xml into revision 2, or into
+     * the single, approved revision 1 when they are the same. The copy is deleted only once the
+     * revision log is on the disk; a copy left behind by a crash after that is just deleted.
+     *
+     * @param current content of config.xml
+     * @return whether a copy was converted
+     */
+    private boolean migrateLegacyDiff(String name, BuildConfigurationModel current) throws IOException {
+        File legacyFile = getLegacyFile(name);
+        if (!legacyFile.exists()) {
+            return false;
+        }
+        if (getLogFile(name).exists()) {
+            FileUtils.deleteDirectory(legacyFile.getParentFile());
+            return false;
+        }
+        BuildConfigurationModel approved = new BuildConfigurationModel();
+        new XmlFile(Jenkins.XSTREAM, legacyFile).unmarshal(approved);
+        ConfigurationRevisionModel first = new ConfigurationRevisionModel(1, legacyFile.lastModified(),
+                approved.getCreator(), ConfigurationState.APPROVED);
+        ConfigurationDelta delta = current != null ? ConfigurationDelta.between(current, approved) : null;
+        if (delta == null || delta.isEmpty()) {
+            appendRecords(name, formatRevision(first), formatApproval(1));
+        } else {
+            createRevisionsDirectory(name);
+            ConfigurationWriter.getInstance().write(getRevisionFile(name, 1), delta);
+            File configFile = BuildConfigurationManager.getConfigFileFor(name);
+            ConfigurationRevisionModel second = new ConfigurationRevisionModel(2, configFile.lastModified(),
+                    current.getCreator(), current.getState());
+            appendRecords(name, formatRevision(first), formatApproval(1), formatRevision(second));
+        }
+        logs.remove(name);
+        FileUtils.deleteDirectory(legacyFile.getParentFile());
+        logger.info("Approved copy of configuration " + name + " converted to revision 1");
+        return true;
+    }
+
+    private ConfigurationRevisionLog getLog(String name) throws IOException {
+        ConfigurationRevisionLog log = logs.get(name);
+        if (log != null) {
+            return log;
+        }
+        Lock lock = BuildConfigurationManager.lockConfiguration(name);
+        try {
+            log = logs.get(name);
+            if (log != null) {
+                return log;
+            }
+            log = readLog(name);
+            logs.put(name, log);
+            return log;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ConfigurationRevisionLog readLog(String name) throws IOException {
+        File file = getLogFile(name);
+        if (!file.exists()) {
+            return new ConfigurationRevisionLog();
+        }
+        ConfigurationJournal.terminateLastLine(file);
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        ConfigurationRevisionLog log = parse(lines);
+        ConfigurationRevisionModel head = log.getHead();
+        if (head == null || isWritten(name, head.getNumber())) {
+            return log;
+        }
+        // the save which recorded the head failed or crashed before replacing config.xml
+        String number = String.valueOf(head.getNumber());
+        List<String> kept = new ArrayList<>(lines.size());
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            String[] fields = line.split(SEPARATOR, 3);
+            if (fields.length < 2 || !number.equals(fields[1])) {
+                kept.add(line);
+                content.append(line).append('\n');
+            }
+        }
+        ConfigurationWriter.getInstance().write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        logger.warn("Revision " + number + " of " + name + " never reached config.xml and was dropped");
+        return parse(kept);
+    }
+
+    /**
+     * Tells whether config.xml holds the given latest revision rather than the one before it. The delta kept
+     * for the revision before turns the latest one into it, so it changes nothing in the revision before.
+     */
+    private static boolean isWritten(String name, int head) throws IOException {
+        File configFile = BuildConfigurationManager.getConfigFileFor(name);
+        if (!configFile.exists()) {
+            return head > 1;
+        }
+        File deltaFile = getRevisionFile(name, head - 1);
+        if (head == 1 || !deltaFile.exists()) {
+            return true;
+        }
+        BuildConfigurationModel current = new BuildConfigurationModel();
+        new XmlFile(Jenkins.XSTREAM, configFile).unmarshal(current);
+        return !ConfigurationDelta.between(current, readDelta(deltaFile).applyTo(current)).isEmpty();
+    }
+
+    private static ConfigurationDelta readDelta(File file) throws IOException {
+        return (ConfigurationDelta) new XmlFile(Jenkins.XSTREAM, file).read();
+    }
+
+    private static ConfigurationRevisionLog parse(List<String> lines) {
+        ConfigurationRevisionLog log = new ConfigurationRevisionLog();
+        for (String line : lines) {
+            parse(line, log);
+        }
+        return log;
+    }
+
+    private static void parse(String line, ConfigurationRevisionLog log) {
+        String[] fields = line.split(SEPARATOR, 5);
+        try {
+            if (fields.length == 2 && APPROVAL_RECORD.equals(fields[0])) {
+                log.approve(Integer.parseInt(fields[1]));
+                return;
+            }
+            if (fields.length == 5 && REVISION_RECORD.equals(fields[0])) {
+                int number = Integer.parseInt(fields[1]);
+                ConfigurationRevisionModel head = log.getHead();
+                if (number == (head == null ? 1 : head.getNumber() + 1)) {
+                    log.append(new ConfigurationRevisionModel(number, Long.parseLong(fields[2]), fields[4],
+                            ConfigurationState.valueOf(fields[3])));
+                }
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            // a line cut short by a crash, reported below
+        }
+        logger.warn("Skipping unreadable revision log line: " + line);
+    }
+
+    private static String formatRevision(ConfigurationRevisionModel revision) {
+        return REVISION_RECORD + SEPARATOR + revision.getNumber() + SEPARATOR + revision.getTimestamp() + SEPARATOR
+                + revision.getState().name() + SEPARATOR + String.valueOf(revision.getUser()).replaceAll("[\t\r\n]", " ")
+                + "\n";
+    }
+
+    private static String formatApproval(int number) {
+        return APPROVAL_RECORD + SEPARATOR + number + "\n";
+    }
+
+    private static void appendRecords(String name, String... records) throws IOException {
+        createRevisionsDirectory(name);
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            lines.append(record);
+        }
+        ConfigurationJournal.appendSynced(getLogFile(name), lines.toString());
+    }
+
+    private BuildConfigurationModel getCached(String name, int number) {
+        synchronized (revisionCache) {
+            return revisionCache.get(name + "#" + number);
+        }
+    }
+
+    private void cache(String name, int number, BuildConfigurationModel model) {
+        synchronized (revisionCache) {
+            revisionCache.put(name + "#" + number, model);
+        }
+    }
+
+    private static File getLegacyFile(String name) throws IOException {
+        return new File(new File(BuildConfigurationManager.getConfigDirectory(name), LEGACY_DIFF_DIRECTORY_NAME),
+                BuildConfigurationManager.CONFIG_FILE_NAME);
+    }
+
+    private static void createRevisionsDirectory(String name) throws IOException {
+        File directory = getRevisionsDirectory(name);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create path:" + directory.getPath());
+        }
+    }
+
+    private static File getRevisionsDirectory(String name) throws IOException {
+        return new File(BuildConfigurationManager.getConfigDirectory(name), REVISIONS_DIRECTORY_NAME);
+    }
+
+    private static File getLogFile(String name) throws IOException {
+        return new File(getRevisionsDirectory(name), LOG_FILE_NAME);
+    }
+
+    private static File getRevisionFile(String name, int number) throws IOException {
+        return new File(getRevisionsDirectory(name), number + ".xml");
+    }
+}
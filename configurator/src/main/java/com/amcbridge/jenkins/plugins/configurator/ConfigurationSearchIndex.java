@@ -0,0 +1,140 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.SearchField;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * For every {@link SearchField}, the names of the configurations using each value.
+ * Kept up to date by {@link ConfigurationRegistry}; values are matched ignoring case and,
+ * for repositories, a trailing slash.
+ */
+final class ConfigurationSearchIndex {
+
+    private final Map<SearchField, ConcurrentMap<String, Set<String>>> index = new EnumMap<>(SearchField.class);
+    private final ConcurrentMap<String, ConfigurationSummaryModel> indexed = new ConcurrentHashMap<>();
+
+    ConfigurationSearchIndex() {
+        for (SearchField field : SearchField.values()) {
+            index.put(field, new ConcurrentHashMap<String, Set<String>>());
+        }
+    }
+
+    synchronized void update(ConfigurationSummaryModel config) {
+        String name = config.getProjectName();
+        ConfigurationSummaryModel previous = indexed.put(name, config);
+        for (SearchField field : SearchField.values()) {
+            Set<String> values = normalize(field, config.getValues(field));
+            if (previous != null) {
+                for (String value : normalize(field, previous.getValues(field))) {
+                    if (!values.contains(value)) {
+                        removeName(field, value, name);
+                    }
+                }
+            }
+            for (String value : values) {
+                Set<String> names = index.get(field).get(value);
+                if (names == null) {
+                    names = new ConcurrentSkipListSet<>();
+                    index.get(field).put(value, names);
+                }
+                names.add(name);
+            }
+        }
+    }
+
+    synchronized void remove(String name) {
+        ConfigurationSummaryModel previous = indexed.remove(name);
+        if (previous == null) {
+            return;
+        }
+        for (SearchField field : SearchField.values()) {
+            for (String value : normalize(field, previous.getValues(field))) {
+                removeName(field, value, name);
+            }
+        }
+    }
+
+    /**
+     * Names of the configurations having the value in the field, in alphabetical order.
+     */
+    Set<String> find(SearchField field, String value) {
+        Set<String> names = index.get(field).get(normalize(field, value));
+        return names != null ? Collections.unmodifiableSet(names) : Collections.<String>emptySet();
+    }
+
+    /**
+     * Names of the configurations matching all the given field values, in alphabetical order.
+     * Walks the smallest of the matching sets and probes the others.
+     */
+    List<String> find(Map<SearchField, String> filters) {
+        List<Set<String>> sets = new ArrayList<>(filters.size());
+        Set<String> smallest = null;
+        for (Map.Entry<SearchField, String> filter : filters.entrySet()) {
+            Set<String> names = find(filter.getKey(), filter.getValue());
+            if (names.isEmpty()) {
+                return new ArrayList<>();
+            }
+            sets.add(names);
+            if (smallest == null || names.size() < smallest.size()) {
+                smallest = names;
+            }
+        }
+        List<String> result = new ArrayList<>();
+        if (smallest == null) {
+            return result;
+        }
+        for (String name : smallest) {
+            boolean matches = true;
+            for (Set<String> names : sets) {
+                if (names != smallest && !names.contains(name)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    private void removeName(SearchField field, String value, String name) {
+        Set<String> names = index.get(field).get(value);
+        if (names != null) {
+            names.remove(name);
+            if (names.isEmpty()) {
+                index.get(field).remove(value);
+            }
+        }
+    }
+
+    private static Set<String> normalize(SearchField field, Set<String> values) {
+        Set<String> result = new HashSet<>(values.size() * 2);
+        for (String value : values) {
+            result.add(normalize(field, value));
+        }
+        return result;
+    }
+
+    private static String normalize(SearchField field, String value) {
+        String result = value.trim().toLowerCase(Locale.ENGLISH);
+        if (field == SearchField.REPOSITORY) {
+            while (result.endsWith("/")) {
+                result = result.substring(0, result.length() - 1);
+            }
+        }
+        return result;
+    }
+}
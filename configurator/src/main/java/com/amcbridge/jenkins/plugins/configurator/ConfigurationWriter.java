@@ -0,0 +1,123 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import jenkins.model.Jenkins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes configuration files so that a crash never leaves a truncated file behind:
+ * the content goes to a temporary file in the same directory, is synced and then renamed over the target.
+ * Writes run on the caller's thread, so concurrent saves of different configurations do not wait for each other.
+ */
+final class ConfigurationWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationWriter.class);
+    private static final String XML_HEADER = "<?xml version='1.0' encoding='UTF-8'?>\n";
+    static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final ConfigurationWriter instance = new ConfigurationWriter();
+
+    private ConfigurationWriter() {
+    }
+
+    static ConfigurationWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Serializes the object into the file and returns once the file is durably replaced.
+     */
+    void write(File file, Object object) throws IOException {
+        write(file, serialize(object));
+    }
+
+    /**
+     * Writes the bytes into the file and returns once the file is durably replaced.
+     */
+    void write(File file, byte[] content) throws IOException {
+        replace(file, content);
+        syncDirectory(file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Writes several files, syncing each directory they are in only once. Every file is attempted;
+     * the first failure is thrown after all of them are done.
+     */
+    void writeAll(Map<File, ?> objects) throws IOException {
+        IOException failure = null;
+        Set<File> directories = new LinkedHashSet<>();
+        for (Map.Entry<File, ?> object : objects.entrySet()) {
+            File file = object.getKey().getAbsoluteFile();
+            try {
+                replace(file, object.getValue() instanceof byte[]
+                        ? (byte[]) object.getValue() : serialize(object.getValue()));
+                directories.add(file.getParentFile());
+            } catch (IOException e) {
+                logger.error("Error writing " + file, e);
+                if (failure == null) {
+                    failure = new IOException("Unable to write " + file, e);
+                }
+            }
+        }
+        for (File directory : directories) {
+            syncDirectory(directory);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            writer.write(XML_HEADER);
+            Jenkins.XSTREAM.toXML(object, writer);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void replace(File file, byte[] content) throws IOException {
+        File directory = file.getParentFile();
+        File temp = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, directory);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(content);
+                out.getChannel().force(true);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Makes the renames durable. Not every platform can open a directory, which is not an error.
+     */
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to sync directory " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers what each job was last generated from: a hash of the fields of its configuration which reach
+ * the job, and of the time the job templates and config files last changed.
+ * A job whose recorded fingerprint differs from the current one is stale.
+ * Changes are saved at once, except between {@link #beginBatch()} and {@link #endBatch()}, where they're saved
+ * once at the end; fingerprints lost to a crash in between only make their jobs regenerate again.
+ */
+final class JobFingerprints {
+
+    private static final String FINGERPRINTS_FILE_NAME = ".job-fingerprints.xml";
+    private static final String PLUGIN_PATH = "/plugins/build-configurator";
+    private static final String[] TEMPLATE_DIRECTORIES = {"job", "config"};
+    private static final Set<String> NON_JOB_FIELDS = new HashSet<>(Arrays.asList(
+            "creator", "date", "rejectionReason", "isJobUpdate", "state", "comments", "userWithAccess"));
+    private static final List<Field> JOB_FIELDS = getJobFields();
+    private static final JobFingerprints instance = new JobFingerprints();
+
+    private volatile Map<String, String> fingerprints;
+    private int batches;
+    private boolean dirty;
+
+    private JobFingerprints() {
+    }
+
+    static JobFingerprints getInstance() {
+        return instance;
+    }
+
+    static String compute(BuildConfigurationModel config) throws IOException {
+        return compute(config, getTemplatesLastModified());
+    }
+
+    /**
+     * @param templatesLastModified result of {@link #getTemplatesLastModified()}, for computing many at once
+     */
+    static String compute(BuildConfigurationModel config, long templatesLastModified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (Field field : JOB_FIELDS) {
+                Object value = field.get(config);
+                digest.update((field.getName() + "=" + (value == null ? "" : Jenkins.XSTREAM.toXML(value)) + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(Long.toString(templatesLastModified).getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest()) {
+                result.append(String.format("%02x", b & 0xff));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Field> getJobFields() {
+        List<Field> result = new ArrayList<>();
+        for (Field field : BuildConfigurationModel.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                    || NON_JOB_FIELDS.contains(field.getName())) {
+                continue;
+            }
+            field.setAccessible(true);
+            result.add(field);
+        }
+        // the order of declared fields isn't specified, the fingerprints have to outlive the JVM
+        Collections.sort(result, new Comparator<Field>() {
+            @Override
+            public int compare(Field field1, Field field2) {
+                return field1.getName().compareTo(field2.getName());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Time the job templates or plugin config files last changed.
+     */
+    static long getTemplatesLastModified() throws IOException {
+        File pluginDirectory = new File(BuildConfigurationManager.getJenkins().getRootDir() + PLUGIN_PATH);
+        long lastModified = 0;
+        for (String directory : TEMPLATE_DIRECTORIES) {
+            lastModified = Math.max(lastModified, getLastModified(new File(pluginDirectory, directory)));
+        }
+        return lastModified;
+    }
+
+    boolean isCurrent(String name, String fingerprint) throws IOException {
+        return fingerprint.equals(getFingerprints().get(name));
+    }
+
+    synchronized void record(String name, String fingerprint) throws IOException {
+        if (!fingerprint.equals(getFingerprints().put(name, fingerprint))) {
+            changed();
+        }
+    }
+
+    synchronized void remove(String name) throws IOException {
+        if (getFingerprints().remove(name) != null) {
+            changed();
+        }
+    }
+
+    /**
+     * Holds off saving until the matching {@link #endBatch()}, for recording many fingerprints at once.
+     */
+    synchronized void beginBatch() {
+        batches++;
+    }
+
+    /**
+     * Saves the changes recorded since the first {@link #beginBatch()} once the last batch ends.
+     */
+    synchronized void endBatch() throws IOException {
+        if (--batches == 0 && dirty) {
+            save();
+        }
+    }
+
+    private void changed() throws IOException {
+        dirty = true;
+        if (batches == 0) {
+            save();
+        }
+    }
+
+    private Map<String, String> getFingerprints() throws IOException {
+        Map<String, String> result = fingerprints;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            if (fingerprints == null) {
+                Map<String, String> loaded = new ConcurrentHashMap<>();
+                XmlFile file = new XmlFile(Jenkins.XSTREAM, getFingerprintsFile());
+                if (file.exists()) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, String> stored = (Map<String, String>) file.read();
+                    loaded.putAll(stored);
+                }
+                fingerprints = loaded;
+            }
+            return fingerprints;
+        }
+    }
+
+    private void save() throws IOException {
+        ConfigurationWriter.getInstance().write(getFingerprintsFile(), new HashMap<>(getFingerprints()));
+        dirty = false;
+    }
+
+    private static long getLastModified(File file) {
+        long lastModified = file.lastModified();
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                lastModified = Math.max(lastModified, getLastModified(child));
+            }
+        }
+        return lastModified;
+    }
+
+    private static File getFingerprintsFile() throws IOException {
+        return new File(BuildConfigurationManager.getRootDir(), FINGERPRINTS_FILE_NAME);
+    }
+}
@@ -0,0 +1,250 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.JobGenerationState;
+import com.amcbridge.jenkins.plugins.models.JobGenerationModel;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the jobs of many configurations at once on a few workers, at most
+ * {@code JobGenerationService.workers} at a time. Job XML is generated in parallel; only handing the jobs
+ * to Jenkins is done one at a time. Jobs created or deleted from the page are queued separately, on
+ * {@code JobGenerationService.taskWorkers} workers, so they don't wait for a bulk run and don't hold a request thread.
+ * Every run gets an id under which its progress is kept for polling; the latest bulk run is always kept,
+ * and of the others only finished ones are forgotten, the oldest first, once there are too many.
+ * Every run acts as the user who started it; a bulk run also saves the job fingerprints once, when it ends.
+ */
+final class JobGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobGenerationService.class);
+    private static final String PREFIX = JobGenerationService.class.getName();
+    private static final int WORKERS = Integer.getInteger(PREFIX + ".workers", Runtime.getRuntime().availableProcessors());
+    private static final int TASK_WORKERS = Integer.getInteger(PREFIX + ".taskWorkers", 2);
+    private static final int KEPT_RUNS = 64;
+    private static final JobGenerationService instance = new JobGenerationService();
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor taskWorkers;
+    private final AtomicLong lastId = new AtomicLong();
+    private final Map<Long, Run> runs = new LinkedHashMap<>();
+    private Run bulkRun;
+
+    private enum Operation {
+        GENERATE_APPROVED, CREATE, DELETE
+    }
+
+    private static final class Run {
+        private final long id;
+        private final Operation operation;
+        private final long startTime = System.currentTimeMillis();
+        private final Map<String, JobGenerationState> states = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, String> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final Runnable onSuccess;
+        private final Authentication authentication;
+        private final String user;
+
+        private Run(long id, Operation operation, Collection<String> names, Runnable onSuccess) {
+            this.id = id;
+            this.operation = operation;
+            this.onSuccess = onSuccess;
+            this.authentication = Jenkins.getAuthentication();
+            this.user = BuildConfigurationManager.getCurrentUserID();
+            for (String name : names) {
+                states.put(name, JobGenerationState.QUEUED);
+            }
+            remaining = new AtomicInteger(states.size());
+        }
+
+        private boolean isFinished() {
+            return remaining.get() == 0;
+        }
+
+        private JobGenerationModel toModel() {
+            Map<String, String> jobs = new TreeMap<>();
+            for (Map.Entry<String, JobGenerationState> state : states.entrySet()) {
+                jobs.put(state.getKey(), state.getValue().toString());
+            }
+            return new JobGenerationModel(id, startTime, states.size(), done.get(), failures.size(), jobs,
+                    new TreeMap<>(failures));
+        }
+    }
+
+    private JobGenerationService() {
+        workers = createWorkers(WORKERS);
+        taskWorkers = createWorkers(TASK_WORKERS);
+    }
+
+    private static ThreadPoolExecutor createWorkers(int size) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static JobGenerationService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queues the jobs of the approved configurations among the given ones for creation or update.
+     *
+     * @return id of the run, or -1 if another run is still generating jobs
+     */
+    long start(Collection<String> names) {
+        return start(names, null);
+    }
+
+    /**
+     * Like {@link #start(Collection)}, running {@code onSuccess} once every job was generated.
+     */
+    synchronized long start(Collection<String> names, Runnable onSuccess) {
+        if (bulkRun != null && !bulkRun.isFinished()) {
+            return -1;
+        }
+        if (bulkRun != null) {
+            keep(bulkRun);
+        }
+        JobFingerprints.getInstance().beginBatch();
+        bulkRun = submit(Operation.GENERATE_APPROVED, names, workers, onSuccess);
+        logger.info("Generating jobs of " + bulkRun.states.size() + " configurations");
+        if (bulkRun.states.isEmpty()) {
+            // no worker will finish it; otherwise the last worker does, possibly before this line
+            finish(bulkRun);
+        }
+        return bulkRun.id;
+    }
+
+    /**
+     * Queues the creation or update of the configuration's job.
+     *
+     * @return id of the run
+     */
+    synchronized long submitCreate(String name) {
+        return keep(submit(Operation.CREATE, Collections.singleton(name), taskWorkers, null)).id;
+    }
+
+    /**
+     * Queues the deletion of the configuration's job.
+     *
+     * @return id of the run
+     */
+    synchronized long submitDelete(String name) {
+        return keep(submit(Operation.DELETE, Collections.singleton(name), taskWorkers, null)).id;
+    }
+
+    private Run submit(Operation operation, Collection<String> names, ThreadPoolExecutor executor,
+                       Runnable onSuccess) {
+        final Run run = new Run(lastId.incrementAndGet(), operation, names, onSuccess);
+        for (final String name : run.states.keySet()) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SecurityContext previous = ACL.impersonate(run.authentication);
+                    try {
+                        execute(run, name);
+                    } finally {
+                        SecurityContextHolder.setContext(previous);
+                    }
+                }
+            });
+        }
+        return run;
+    }
+
+    /**
+     * Keeps the run for polling, forgetting the oldest finished runs beyond {@link #KEPT_RUNS}.
+     */
+    private Run keep(Run run) {
+        runs.put(run.id, run);
+        Iterator<Run> kept = runs.values().iterator();
+        while (runs.size() > KEPT_RUNS && kept.hasNext()) {
+            if (kept.next().isFinished()) {
+                kept.remove();
+            }
+        }
+        return run;
+    }
+
+    /**
+     * @param user id of the user asking, null to show runs started by anyone
+     * @return progress of the run, null if it's unknown, too old or was started by another user
+     */
+    synchronized JobGenerationModel getStatus(long id, String user) {
+        Run run = bulkRun != null && bulkRun.id == id ? bulkRun : runs.get(id);
+        if (run == null || user != null && !user.equals(run.user)) {
+            return null;
+        }
+        return run.toModel();
+    }
+
+    private static void execute(Run run, String name) {
+        run.states.put(name, JobGenerationState.RUNNING);
+        try {
+            boolean executed = true;
+            switch (run.operation) {
+                case GENERATE_APPROVED:
+                    executed = BuildConfigurationManager.reconcileJob(name);
+                    break;
+                case CREATE:
+                    BuildConfigurationManager.createJob(name);
+                    break;
+                case DELETE:
+                    BuildConfigurationManager.deleteJob(name);
+                    break;
+            }
+            if (executed) {
+                run.done.incrementAndGet();
+                run.states.put(name, JobGenerationState.DONE);
+            } else {
+                fail(run, name, "Configuration is not approved");
+            }
+        } catch (Exception e) {
+            logger.error("Job of configuration " + name + " was not processed", e);
+            fail(run, name, String.valueOf(e.getMessage()));
+        }
+        if (run.remaining.decrementAndGet() == 0) {
+            finish(run);
+        }
+    }
+
+    private static void finish(Run run) {
+        if (run.operation == Operation.GENERATE_APPROVED) {
+            logger.info("Jobs generated: " + run.done.get() + ", failed: " + run.failures.size());
+            try {
+                JobFingerprints.getInstance().endBatch();
+            } catch (IOException e) {
+                logger.error("Error saving job fingerprints", e);
+            }
+        }
+        if (run.onSuccess != null && run.failures.isEmpty()) {
+            run.onSuccess.run();
+        }
+    }
+
+    private static void fail(Run run, String name, String reason) {
+        run.failures.put(name, reason);
+        run.states.put(name, JobGenerationState.FAILED);
+    }
+}
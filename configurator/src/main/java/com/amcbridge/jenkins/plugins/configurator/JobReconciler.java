@@ -0,0 +1,175 @@
+package com.amcbridge.jenkins.plugins.configurator;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
+import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
+import com.amcbridge.jenkins.plugins.models.ConfigurationSummaryModel;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the jobs of approved configurations in sync without anyone clicking "Create Job": an existing job is
+ * regenerated when it was generated from another version of the configuration or of the templates.
+ * Jobs which are missing or were deleted through the configurator are left alone.
+ * Off unless the {@code JobReconciler.enabled} system property is set.
+ * Jobs are regenerated by a few workers started no more often than {@code JobReconciler.jobsPerMinute};
+ * when the workers fall behind, the reconciler thread runs the work itself instead of queueing more.
+ * The workers act as SYSTEM, and the fingerprints of a pass are saved once at its end.
+ */
+@Extension
+public class JobReconciler extends AsyncPeriodicWork {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobReconciler.class);
+    private static final String PREFIX = JobReconciler.class.getName();
+    private static final boolean ENABLED = Boolean.getBoolean(PREFIX + ".enabled");
+    private static final long PERIOD_MINUTES = Long.getLong(PREFIX + ".periodMinutes", 5);
+    private static final int WORKERS = Integer.getInteger(PREFIX + ".workers", 2);
+    private static final int JOBS_PER_MINUTE = Integer.getInteger(PREFIX + ".jobsPerMinute", 60);
+    private static final int QUEUE_CAPACITY = 16;
+
+    /**
+     * Summaries found in sync, so an unchanged configuration isn't loaded again until the templates change.
+     */
+    private final Map<String, ConfigurationSummaryModel> verified = new ConcurrentHashMap<>();
+    private volatile long verifiedTemplatesLastModified;
+
+    public JobReconciler() {
+        super("Build configuration job reconciler");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return PERIOD_MINUTES * MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        if (!ENABLED) {
+            return;
+        }
+        List<String> stale = findStaleJobs();
+        if (stale.isEmpty()) {
+            return;
+        }
+        logger.info("Regenerating " + stale.size() + " out of sync jobs");
+        final RateLimiter limiter = new RateLimiter(JOBS_PER_MINUTE);
+        final AtomicInteger regenerated = new AtomicInteger();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
+        JobFingerprints.getInstance().beginBatch();
+        try {
+            for (final String name : stale) {
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        SecurityContext previous = ACL.impersonate(ACL.SYSTEM);
+                        try {
+                            limiter.acquire();
+                            if (BuildConfigurationManager.refreshJob(name)) {
+                                regenerated.incrementAndGet();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (Exception e) {
+                            logger.error("Job of configuration " + name + " was not regenerated", e);
+                        } finally {
+                            SecurityContextHolder.setContext(previous);
+                        }
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(1, TimeUnit.DAYS);
+            } finally {
+                JobFingerprints.getInstance().endBatch();
+            }
+        }
+        logger.info("Out of sync jobs regenerated: " + regenerated.get() + "/" + stale.size());
+    }
+
+    private List<String> findStaleJobs() throws IOException {
+        long templatesLastModified = JobFingerprints.getTemplatesLastModified();
+        if (templatesLastModified != verifiedTemplatesLastModified) {
+            verified.clear();
+            verifiedTemplatesLastModified = templatesLastModified;
+        }
+        List<ConfigurationSummaryModel> summaries = ConfigurationRegistry.getInstance().getSummaries();
+        List<String> configJobNames = new ArrayList<>(summaries.size());
+        for (ConfigurationSummaryModel summary : summaries) {
+            configJobNames.add(JobManagerGenerator.validJobName(summary.getProjectName()));
+        }
+        Set<String> jobNames;
+        SecurityContext previous = ACL.impersonate(ACL.SYSTEM);
+        try {
+            jobNames = JobManagerGenerator.getExistingJobNames(configJobNames);
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+        List<String> stale = new ArrayList<>();
+        for (ConfigurationSummaryModel summary : summaries) {
+            String name = summary.getProjectName();
+            if (summary.getState() != ConfigurationState.APPROVED || !summary.getJobUpdate()
+                    || !jobNames.contains(JobManagerGenerator.validJobName(name))) {
+                verified.remove(name);
+                continue;
+            }
+            if (verified.get(name) == summary) {
+                continue;
+            }
+            BuildConfigurationModel config = ConfigurationRegistry.getInstance().get(name);
+            if (config == null) {
+                continue;
+            }
+            String fingerprint = JobFingerprints.compute(config, templatesLastModified);
+            if (JobFingerprints.getInstance().isCurrent(name, fingerprint)) {
+                verified.put(name, summary);
+            } else {
+                stale.add(name);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Spaces the starts of the jobs evenly, at most the given number a minute.
+     */
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        private RateLimiter(int perMinute) {
+            intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+        }
+
+        void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                wait = next - now;
+                next = Math.max(next, now) + intervalNanos;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.amcbridge.jenkins.plugins.enums;
+
+public enum ConfigurationChangeType {
+
+    CREATE("Created"),
+    UPDATE("Updated"),
+    APPROVE("Approved"),
+    REJECT("Rejected"),
+    MARK_FOR_DELETION("Marked for deletion"),
+    RESTORE("Restored"),
+    DELETE("Deleted");
+
+    private final String value;
+
+    ConfigurationChangeType(String value) {
+        this.value = value;
+    }
+
+    /**
+     * The kind of change that took the configuration from one state to the other.
+     *
+     * @param previous state before the change, null if the configuration didn't exist
+     */
+    public static ConfigurationChangeType between(ConfigurationState previous, ConfigurationState current) {
+        if (previous == null) {
+            return CREATE;
+        }
+        if (previous != current) {
+            if (current == ConfigurationState.FOR_DELETION) {
+                return MARK_FOR_DELETION;
+            }
+            if (previous == ConfigurationState.FOR_DELETION) {
+                return RESTORE;
+            }
+            if (current == ConfigurationState.APPROVED) {
+                return APPROVE;
+            }
+            if (current == ConfigurationState.REJECTED) {
+                return REJECT;
+            }
+        }
+        return UPDATE;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+package com.amcbridge.jenkins.plugins.enums;
+
+public enum ConfigurationSortField {
+
+    NAME("name"),
+    STATE("state"),
+    DATE("date"),
+    CREATOR("creator");
+
+    private final String fieldValue;
+
+    ConfigurationSortField(String value) {
+        this.fieldValue = value;
+    }
+
+    public static ConfigurationSortField fromString(String value) {
+        for (ConfigurationSortField field : values()) {
+            if (field.fieldValue.equalsIgnoreCase(value)) {
+                return field;
+            }
+        }
+        return NAME;
+    }
+
+    @Override
+    public String toString() {
+        return fieldValue;
+    }
+}
@@ -0,0 +1,20 @@
+package com.amcbridge.jenkins.plugins.enums;
+
+public enum JobGenerationState {
+
+    QUEUED("Queued"),
+    RUNNING("Running"),
+    DONE("Done"),
+    FAILED("Failed");
+
+    private final String value;
+
+    JobGenerationState(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.amcbridge.jenkins.plugins.enums;
+
+public enum SearchField {
+
+    SCM("scm"),
+    REPOSITORY("repository"),
+    BUILDER("builder"),
+    PLATFORM("platform"),
+    NODE("node"),
+    CREDENTIALS("credentials");
+
+    private final String fieldValue;
+
+    SearchField(String value) {
+        this.fieldValue = value;
+    }
+
+    public static SearchField fromString(String value) {
+        for (SearchField field : values()) {
+            if (field.fieldValue.equalsIgnoreCase(value)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown search field: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return fieldValue;
+    }
+}
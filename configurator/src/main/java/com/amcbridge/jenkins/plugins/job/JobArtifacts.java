@@ -25,13 +25,13 @@ public class JobArtifacts implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) {
+    public Node generateNode(BuildConfigurationModel config, Document xml) {
         String artf = getArtifacts(config);
         if (artf.isEmpty()) {
-            return StringUtils.EMPTY;
+            return null;
         }
         ArtifactArchiver artifact = new ArtifactArchiver(artf, StringUtils.EMPTY, false);
-        return JobManagerGenerator.convertToXML(artifact);
+        return JobManagerGenerator.convertToNode(artifact, xml);
     }
 
     @Override
@@ -1,10 +1,6 @@
 package com.amcbridge.jenkins.plugins.job;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.commons.lang.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
@@ -18,7 +14,6 @@ public class JobAssignedNode implements JobElementDescriptionCheckBox {
     private static final String PARENT_ELEMENT_TAG = "project";
     private static final String NODE_SEPARATOR = " || ";
     private static final String CHECK_TAG = "canRoam";
-    private static final Logger logger = LoggerFactory.getLogger(JobAssignedNode.class);
 
     @Override
     public String getElementTag() {
@@ -31,25 +26,14 @@ public class JobAssignedNode implements JobElementDescriptionCheckBox {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) {
-        DocumentBuilderFactory docFactory;
-        DocumentBuilder docBuilder;
-        Document doc;
-        Node node = null;
-
-        if (getNodes(config).isEmpty()) {
-            return StringUtils.EMPTY;
-        }
-        try {
-            docFactory = DocumentBuilderFactory.newInstance();
-            docBuilder = docFactory.newDocumentBuilder();
-            doc = docBuilder.newDocument();
-            node = doc.createElement(ELEMENT_TAG);
-            node.setTextContent(getNodes(config));
-        } catch (Exception e) {
-            logger.error("Generate XML error", e);
+    public Node generateNode(BuildConfigurationModel config, Document xml) {
+        String nodes = getNodes(config);
+        if (nodes.isEmpty()) {
+            return null;
         }
-        return JobManagerGenerator.documentToXML(node);
+        Node node = xml.createElement(ELEMENT_TAG);
+        node.setTextContent(nodes);
+        return node;
     }
 
     @Override
@@ -4,7 +4,6 @@ import antlr.ANTLRException;
 import com.amcbridge.jenkins.plugins.job.elementdescription.JobElementDescription;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import hudson.triggers.TimerTrigger;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -33,22 +32,22 @@ public class JobBuildTriggerPeriodically implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException {
         TimerTrigger timerTrigger;
         if (config == null) {
-            return StringUtils.EMPTY;
+            return null;
         }
         try {
             timerTrigger = new TimerTrigger(config.getBuildPeriodicallyTrigger());
-            return JobManagerGenerator.convertToXML(timerTrigger);
+            return JobManagerGenerator.convertToNode(timerTrigger, xml);
         } catch (ANTLRException e) {
             LOGGER.error("Error setting \"" + config.getBuildPeriodicallyTrigger() + "\" build trigger", e);
             try {
                 timerTrigger = new TimerTrigger(DEFAULT_BUILD_TRIGGER);
-                return JobManagerGenerator.convertToXML(timerTrigger);
+                return JobManagerGenerator.convertToNode(timerTrigger, xml);
             } catch (ANTLRException e1) {
                 LOGGER.error("Error setting default \"" + DEFAULT_BUILD_TRIGGER + " \" build trigger", e1);
-                return StringUtils.EMPTY;
+                return null;
             }
         }
     }
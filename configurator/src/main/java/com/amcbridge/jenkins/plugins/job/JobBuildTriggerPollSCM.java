@@ -4,7 +4,6 @@ import antlr.ANTLRException;
 import com.amcbridge.jenkins.plugins.job.elementdescription.JobElementDescription;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import hudson.triggers.SCMTrigger;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -33,22 +32,22 @@ public class JobBuildTriggerPollSCM implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException {
         if (config.getPollSCMTrigger() == null || "".equals(config.getPollSCMTrigger())) {
-            return StringUtils.EMPTY;
+            return null;
         }
         SCMTrigger scmTrigger;
         try {
             scmTrigger = new SCMTrigger(config.getPollSCMTrigger(), false);
-            return JobManagerGenerator.convertToXML(scmTrigger);
+            return JobManagerGenerator.convertToNode(scmTrigger, xml);
         } catch (ANTLRException e) {
             LOGGER.error("Error setting \"" + config.getPollSCMTrigger() + "\" build trigger", e);
             try {
                 scmTrigger = new SCMTrigger(DEFAULT_BUILD_TRIGGER, false);
-                return JobManagerGenerator.convertToXML(scmTrigger);
+                return JobManagerGenerator.convertToNode(scmTrigger, xml);
             } catch (ANTLRException e1) {
                 LOGGER.error("Error setting default \"" + DEFAULT_BUILD_TRIGGER + " \" build trigger", e1);
-                return StringUtils.EMPTY;
+                return null;
             }
         }
     }
@@ -2,12 +2,12 @@ package com.amcbridge.jenkins.plugins.job;
 
 import com.amcbridge.jenkins.plugins.job.scm.JobGitScm;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
-import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.*;
+import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
 
 public class JobGit extends JobGitScm {
@@ -16,30 +16,30 @@ public class JobGit extends JobGitScm {
     private static final String TEMPLATE_PATH = "/plugins/build-configurator/job/git/git.xml";
 
     @Override
-    public String generateXML(BuildConfigurationModel config) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
 
         if (config.getProjectToBuild() == null) {
-            return StringUtils.EMPTY;
+            return null;
         }
 
         Document doc = JobManagerGenerator.loadTemplate(TEMPLATE_PATH);
         setProjectsConfigs(doc, config);
-        return JobManagerGenerator.documentToXML(doc);
+        return xml.importNode(doc.getDocumentElement(), true);
     }
 
     @Override
     protected void setProjectsConfigs(Document doc, BuildConfigurationModel config) throws XPathExpressionException {
 
-        String scmPath = XPATH_CONCRETE_GIT_SCM;
+        Node scmNode = XPathExpressions.getNode(XPATH_CONCRETE_GIT_SCM, doc);
 
         //branch name
-        setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_BRANCH_NAME, config.getProjectToBuild().get(0).getBranchName(), doc);
+        setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_BRANCH_NAME, config.getProjectToBuild().get(0).getBranchName());
 
         //url
-        setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_URL, config.getProjectToBuild().get(0).getProjectUrl(), doc);
+        setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_URL, config.getProjectToBuild().get(0).getProjectUrl());
 
         //credentials
-        setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_CREDENTIALS_ID, config.getProjectToBuild().get(0).getCredentials(), doc);
+        setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_CREDENTIALS_ID, config.getProjectToBuild().get(0).getCredentials());
 
     }
 
@@ -1,7 +1,6 @@
 package com.amcbridge.jenkins.plugins.job;
 
 import hudson.tasks.Mailer;
-import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
@@ -24,15 +23,15 @@ public class JobMailer implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) {
+    public Node generateNode(BuildConfigurationModel config, Document xml) {
 
         if (config.getEmail().isEmpty()) {
-            return StringUtils.EMPTY;
+            return null;
         }
         Mailer mailer = new Mailer();
         mailer.recipients = config.getEmail().trim();
 
-        return JobManagerGenerator.convertToXML(mailer);
+        return JobManagerGenerator.convertToNode(mailer, xml);
     }
 
     @Override
@@ -10,8 +10,11 @@ import com.amcbridge.jenkins.plugins.job.elementdescription.*;
 import com.amcbridge.jenkins.plugins.job.scm.*;
 import com.amcbridge.jenkins.plugins.serialization.*;
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomWriter;
+import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
 import hudson.model.Item;
 import hudson.model.AbstractItem;
+import hudson.model.TopLevelItem;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -20,28 +23,28 @@ import org.w3c.dom.*;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.*;
-import javax.xml.xpath.*;
+import javax.xml.xpath.XPathExpressionException;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class JobManagerGenerator {
 
     public static final String COMMA_SEPARATOR = ", ";
     public static final String JOB_TEMPLATE_PATH = "/plugins/build-configurator/job/JobTemplate.xml";
+    private static final String PLUGIN_PATH = "/plugins/build-configurator/";
     private static final String JOB_FOLDER_PATH = "/jobs/";
     private static final int[] SPECIAL_SYMBOLS = {40, 41, 43, 45, 95};
     private static final String XPATH_FILE_TO_COPY = "/project/buildWrappers/com.michelin.cio.hudson.plugins.copytoslave.CopyToSlaveBuildWrapper/includes/text()";
     private static final String XPATH_BUILDERS = "/project/builders/*";
+    private static final String XPATH_LAST_BUILDERS = "/project/builders[last()]";
     private static final String BATCH_COMMAND_TEXT = "java -jar \"%BUILDER_PATH%\\build-configurator-server.jar\" -nodeName \"%NODE_NAME%\" -jobName \"%JOB_NAME%\" -workspace \"%WORKSPACE%\" -jenkinsHome \"%JENKINS_HOME%\"";
     private static final String BATCH_LABEL_TEXT = "${ENV,var=\"OS\"}";
     private static final String BATCH_EXPRESSION_TEXT = "(?i)Windows.*";
@@ -49,14 +52,30 @@ public class JobManagerGenerator {
     private static final String SHELL_LABEL_TEXT = "${ENV,var=\"OS\"}";
     private static final String SHELL_EXPRESSION_TEXT = "(?i)Windows.*";
     private static final Logger logger = LoggerFactory.getLogger(JobManagerGenerator.class);
+    private static final XStream XSTREAM = new XStream();
+    /**
+     * Jobs are generated in parallel, but handed to Jenkins one at a time.
+     */
+    private static final Object REGISTRATION_LOCK = new Object();
+    private static final XStream JOB_XSTREAM = createJobXStream();
     private static final String XML_TITLE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
 
     private JobManagerGenerator() {
     }
 
-    public static String convertToXML(Object obj) {
+    private static XStream createJobXStream() {
         XStream xstream = new XStream();
-        return xstream.toXML(obj);
+        xstream.processAnnotations(Job.class);
+        return xstream;
+    }
+
+    /**
+     * Writes the object straight into the document as an element, not yet attached to it.
+     */
+    public static Node convertToNode(Object obj, Document doc) {
+        Element holder = doc.createElement("holder");
+        XSTREAM.marshal(obj, new DomWriter(holder, doc, new XmlFriendlyNameCoder()));
+        return holder.removeChild(holder.getFirstChild());
     }
 
     public static void createJob(BuildConfigurationModel config)
@@ -75,9 +94,15 @@ public class JobManagerGenerator {
         if (isJobExist(jobName)) {
             updateJobXML(jobName, config);
         } else {
-            File jobFile = getJobXMLFile(config, JOB_TEMPLATE_PATH, false);
-            try (FileInputStream fis = new FileInputStream(jobFile)) {
-                BuildConfigurationManager.getJenkins().createProjectFromXML(jobName, fis);
+            byte[] jobXml = getJobXML(config, JOB_TEMPLATE_PATH, false);
+            TopLevelItem item;
+            synchronized (REGISTRATION_LOCK) {
+                item = BuildConfigurationManager.getJenkins().createProjectFromXML(jobName,
+                        new ByteArrayInputStream(jobXml));
+            }
+            if (item instanceof AbstractItem) {
+                JobOutputDigests.getInstance().record(((AbstractItem) item).getConfigFile().getFile(),
+                        JobOutputDigests.digest(jobXml));
             }
         }
         for (int i = 0; i < config.getProjectToBuild().size(); i++) {
@@ -137,27 +162,42 @@ public class JobManagerGenerator {
     }
 
     public static Boolean isJobExist(String name) throws JenkinsInstanceNotFoundException {
-        for (Item item : BuildConfigurationManager.getJenkins().getAllItems()) {
-            if (item.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return JobNameIndex.getInstance().find(name) != null;
+    }
+
+    /**
+     * The job names among the given ones whose job exists and can be seen by the current user,
+     * for checking many configurations at once.
+     */
+    public static Set<String> getExistingJobNames(Collection<String> jobNames) throws JenkinsInstanceNotFoundException {
+        return JobNameIndex.getInstance().findAll(jobNames);
     }
 
     private static void updateJobXML(String jobName, BuildConfigurationModel config) throws IOException, TransformerException, SAXException, ParserConfigurationException, XPathExpressionException {
         AbstractItem item = (AbstractItem) BuildConfigurationManager.getJenkins().getItemByFullName(jobName);
         String jobPath = JOB_FOLDER_PATH + jobName + "/config.xml";
-        File jobUpdateFile = getJobXMLFile(config, jobPath, true);
-        Source streamSource = new StreamSource(jobUpdateFile);
+        byte[] jobXml = getJobXML(config, jobPath, true);
         if (item == null) {
             throw new JenkinsInstanceNotFoundException("Jenkins instance not found");
         }
-        item.updateByXml(streamSource);
-        item.save();
+        String digest = JobOutputDigests.digest(jobXml);
+        File configFile = item.getConfigFile().getFile();
+        if (JobOutputDigests.getInstance().isCurrent(configFile, digest)) {
+            logger.debug("Job " + jobName + " is up to date");
+            return;
+        }
+        Source streamSource = new StreamSource(new ByteArrayInputStream(jobXml));
+        synchronized (REGISTRATION_LOCK) {
+            item.updateByXml(streamSource);
+            item.save();
+        }
+        JobOutputDigests.getInstance().record(configFile, digest);
     }
 
-    private static File getJobXMLFile(BuildConfigurationModel config, String pathToJob, boolean isFileForUpdate) throws IOException, SAXException, ParserConfigurationException, XPathExpressionException, TransformerException {
+    /**
+     * Generates the job config in memory, so jobs can be generated in parallel.
+     */
+    private static byte[] getJobXML(BuildConfigurationModel config, String pathToJob, boolean isFileForUpdate) throws IOException, SAXException, ParserConfigurationException, XPathExpressionException, TransformerException {
         Document doc = loadTemplate(pathToJob);
         boolean useBuildServer = false;
         if (doc == null) {
@@ -181,24 +221,16 @@ public class JobManagerGenerator {
         writeJobConfigForBuildServer(config);
         WsPluginHelper.wsPluginConfigure(doc, config);
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        DOMSource source = new DOMSource(doc);
-
-        File file = BuildConfigurationManager.getFileToCreateJob();
-        StreamResult result = new StreamResult(file);
-        transformer.transform(source, result);
-        return file;
+        ByteArrayOutputStream jobXml = new ByteArrayOutputStream();
+        XmlUtils.write(doc, new StreamResult(jobXml));
+        return jobXml.toByteArray();
     }
 
     private static void importScriptNode(Document jobTemplate, Document copyToDoc) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
         Node batchScriptNode = getBuildersScriptNode(jobTemplate, BATCH_EXPRESSION_TEXT, BATCH_LABEL_TEXT, BATCH_COMMAND_TEXT);
         Node shellScriptNode = getBuildersScriptNode(jobTemplate, SHELL_EXPRESSION_TEXT, SHELL_LABEL_TEXT, SHELL_COMMAND_TEXT);
         removeBuildersRunScript(copyToDoc);
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        XPathExpression exp;
-        exp = xPath.compile("/project/builders[last()]");
-        Node builderNode = (Node) exp.evaluate(copyToDoc, XPathConstants.NODE);
+        Node builderNode = XPathExpressions.getNode(XPATH_LAST_BUILDERS, copyToDoc);
         batchScriptNode = copyToDoc.importNode(batchScriptNode, true);
         shellScriptNode = copyToDoc.importNode(shellScriptNode, true);
         builderNode.insertBefore(batchScriptNode, null);
@@ -230,12 +262,7 @@ public class JobManagerGenerator {
     }
 
     private static NodeList getBuildersNodeList(Document doc) throws XPathExpressionException {
-        NodeList buildersList;
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        XPathExpression exp;
-        exp = xPath.compile(XPATH_BUILDERS);
-        buildersList = (NodeList) exp.evaluate(doc, XPathConstants.NODESET);
-        return buildersList;
+        return XPathExpressions.getNodeList(XPATH_BUILDERS, doc);
     }
 
     private static Node getBuildersScriptNode(Document doc, String expressionText, String labelText, String scriptText) throws XPathExpressionException {
@@ -293,11 +320,7 @@ public class JobManagerGenerator {
     }
 
     private static void setJobConfigFileName(Document doc, String jobName) throws XPathExpressionException {
-        Node fileNameNode;
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        XPathExpression exp;
-        exp = xPath.compile(XPATH_FILE_TO_COPY);
-        fileNameNode = (Node) exp.evaluate(doc, XPathConstants.NODE);
+        Node fileNameNode = XPathExpressions.getNode(XPATH_FILE_TO_COPY, doc);
         if (jobName != null) {
             fileNameNode.setTextContent(jobName + ".xml");
         }
@@ -305,20 +328,23 @@ public class JobManagerGenerator {
 
     private static void writeJobConfigForBuildServer(BuildConfigurationModel config) throws IOException {
         Job job = buildJob(config);
-        XStream xstream = new XStream();
-        xstream.processAnnotations(Job.class);
-        String paramsXML = xstream.toXML(job);
+        String paramsXML = JOB_XSTREAM.toXML(job);
         String jobName = job.getName();
-        String userContentPath = BuildConfigurationManager.getJenkins().getRootDir() + "/userContent/" + jobName + ".xml";
+        File userContentFile = new File(BuildConfigurationManager.getJenkins().getRootDir() + "/userContent/" + jobName + ".xml");
+        byte[] content = (XML_TITLE + paramsXML).getBytes(BuildConfigurationManager.ENCODING);
+        String digest = JobOutputDigests.digest(content);
+        if (JobOutputDigests.getInstance().isCurrent(userContentFile, digest)) {
+            return;
+        }
 
-        try(FileOutputStream fos = new FileOutputStream(userContentPath);
-            Writer out = new OutputStreamWriter(fos, BuildConfigurationManager.ENCODING)) {
-            out.write(XML_TITLE);
-            out.write(paramsXML);
+        try(FileOutputStream fos = new FileOutputStream(userContentFile)) {
+            fos.write(content);
         }
         catch (Exception e) {
             logger.error("Error writing to job file", e);
+            return;
         }
+        JobOutputDigests.getInstance().record(userContentFile, digest);
     }
 
 
@@ -377,16 +403,16 @@ public class JobManagerGenerator {
                 mainNode.appendChild(document.createElement(element.getParentElementTag()));
             }
             Node elementNode = document.getElementsByTagName(element.getParentElementTag()).item(0);
-            Node newNode = getNode(element.generateXML(config));
+            Node newNode = element.generateNode(config, document);
             if (element instanceof JobElementDescriptionCheckBox) {
-                if (newNode.getFirstChild() == null) {
+                if (newNode == null) {
                     ((JobElementDescriptionCheckBox) element).unCheck(document);
                 } else {
                     ((JobElementDescriptionCheckBox) element).check(document);
                 }
             }
-            if (newNode.getFirstChild() != null) {
-                elementNode.appendChild(document.adoptNode(newNode.getChildNodes().item(0).cloneNode(true)));
+            if (newNode != null) {
+                elementNode.appendChild(newNode);
             }
         } else {
             element.appendToXML(config, document);
@@ -397,45 +423,22 @@ public class JobManagerGenerator {
         return document.getElementsByTagName(node).getLength() > 0;
     }
 
-    private static Node getNode(String xml) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        if (xml.isEmpty()) {
-            return docBuilder.newDocument();
-        }
-        try(InputStream input = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
-            return docBuilder.parse(input);
-        } catch (Exception e) {
-            logger.error("Error parsing xml",e);
-            return null;
-        }
-    }
-
+    /**
+     * Parses a template of the plugin, or any other file under the Jenkins root directory.
+     * Templates come from {@link JobTemplateCache}; the returned document is always the caller's own.
+     */
     public static Document loadTemplate(String path) throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder;
-        Document doc;
-        docBuilder = docFactory.newDocumentBuilder();
-        doc = docBuilder.parse(BuildConfigurationManager.getJenkins().getRootDir() + path);
-        return doc;
+        File file = new File(BuildConfigurationManager.getJenkins().getRootDir() + path);
+        if (path.startsWith(PLUGIN_PATH)) {
+            return JobTemplateCache.getInstance().get(file);
+        }
+        return XmlUtils.parse(file);
     }
 
     public static String documentToXML(Node node) {
         String result = StringUtils.EMPTY;
-        TransformerFactory transformerFactory;
-        Transformer transformer;
-        DOMSource source;
-        Writer writer;
-        StreamResult sr;
         try {
-            transformerFactory = TransformerFactory.newInstance();
-            transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            source = new DOMSource(node);
-            writer = new StringWriter();
-            sr = new StreamResult(writer);
-            transformer.transform(source, sr);
-            result = writer.toString();
+            result = XmlUtils.toXml(node);
         } catch (Exception e) {
             logger.error("Error", e);
         }
@@ -453,10 +456,10 @@ public class JobManagerGenerator {
     }
 
     public static void deleteJob(String name) throws IOException, InterruptedException {
-        for (Item job : BuildConfigurationManager.getJenkins().getAllItems()) {
-            if (job.getName().equals(validJobName(name))) {
+        Item job = JobNameIndex.getInstance().find(validJobName(name));
+        if (job != null) {
+            synchronized (REGISTRATION_LOCK) {
                 job.delete();
-                return;
             }
         }
     }
@@ -0,0 +1,183 @@
+package com.amcbridge.jenkins.plugins.job;
+
+import com.amcbridge.jenkins.plugins.configurator.BuildConfigurationManager;
+import com.amcbridge.jenkins.plugins.exceptions.JenkinsInstanceNotFoundException;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full names of all items by item name, so finding a job by name doesn't walk every item of every folder.
+ * Built on first use as SYSTEM, so it holds every item whoever asks first, and kept current by
+ * {@link ItemListenerImpl}. A name found in the index is still looked up in Jenkins as the caller, so an entry
+ * missed by the listener or an item the caller can't see is never returned; entries are dropped only when
+ * the item is gone for SYSTEM too.
+ */
+final class JobNameIndex {
+
+    private static final JobNameIndex instance = new JobNameIndex();
+
+    private Map<String, Set<String>> fullNames;
+
+    private JobNameIndex() {
+    }
+
+    static JobNameIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * The item with the name, a top-level one first, or null if there's none.
+     */
+    Item find(String name) throws JenkinsInstanceNotFoundException {
+        Jenkins jenkins = BuildConfigurationManager.getJenkins();
+        Item item = jenkins.getItemByFullName(name);
+        if (item != null) {
+            return item;
+        }
+        synchronized (this) {
+            Set<String> candidates = load(jenkins).get(name);
+            if (candidates == null) {
+                return null;
+            }
+            for (String fullName : candidates) {
+                item = jenkins.getItemByFullName(fullName);
+                if (item != null && item.getName().equals(name)) {
+                    return item;
+                }
+            }
+            prune(jenkins, name, candidates);
+            return null;
+        }
+    }
+
+    /**
+     * Drops the candidates which are gone or were renamed.
+     */
+    private void prune(Jenkins jenkins, String name, Set<String> candidates) {
+        SecurityContext previous = ACL.impersonate(ACL.SYSTEM);
+        try {
+            for (Iterator<String> fullName = candidates.iterator(); fullName.hasNext(); ) {
+                Item item = jenkins.getItemByFullName(fullName.next());
+                if (item == null || !item.getName().equals(name)) {
+                    fullName.remove();
+                }
+            }
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+        if (candidates.isEmpty()) {
+            fullNames.remove(name);
+        }
+    }
+
+    /**
+     * The names among the given ones which have an item the caller can see. The index only rules out names
+     * without any item; the others are looked up as the caller.
+     */
+    Set<String> findAll(Collection<String> names) throws JenkinsInstanceNotFoundException {
+        Set<String> indexed;
+        synchronized (this) {
+            indexed = new HashSet<>(load(BuildConfigurationManager.getJenkins()).keySet());
+        }
+        Set<String> result = new HashSet<>();
+        for (String name : names) {
+            if (indexed.contains(name) && find(name) != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Set<String>> load(Jenkins jenkins) {
+        if (fullNames == null) {
+            Map<String, Set<String>> loaded = new HashMap<>();
+            SecurityContext previous = ACL.impersonate(ACL.SYSTEM);
+            try {
+                for (Item item : jenkins.getAllItems()) {
+                    add(loaded, item.getFullName());
+                }
+            } finally {
+                SecurityContextHolder.setContext(previous);
+            }
+            fullNames = loaded;
+        }
+        return fullNames;
+    }
+
+    private synchronized void added(String fullName) {
+        if (fullNames != null) {
+            add(fullNames, fullName);
+        }
+    }
+
+    private synchronized void removed(String fullName) {
+        if (fullNames == null) {
+            return;
+        }
+        String name = getName(fullName);
+        Set<String> candidates = fullNames.get(name);
+        if (candidates != null && candidates.remove(fullName) && candidates.isEmpty()) {
+            fullNames.remove(name);
+        }
+    }
+
+    private synchronized void clear() {
+        fullNames = null;
+    }
+
+    private static void add(Map<String, Set<String>> index, String fullName) {
+        String name = getName(fullName);
+        Set<String> candidates = index.get(name);
+        if (candidates == null) {
+            candidates = new HashSet<>(1);
+            index.put(name, candidates);
+        }
+        candidates.add(fullName);
+    }
+
+    private static String getName(String fullName) {
+        return fullName.substring(fullName.lastIndexOf('/') + 1);
+    }
+
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            getInstance().added(item.getFullName());
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            getInstance().added(item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            getInstance().removed(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            getInstance().removed(oldFullName);
+            getInstance().added(newFullName);
+        }
+
+        @Override
+        public void onLoaded() {
+            getInstance().clear();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.amcbridge.jenkins.plugins.job;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Digests of what was last generated for each job file, so a job isn't reloaded by Jenkins and a file isn't
+ * rewritten when the new content is the same. A file changed since it was written, by anyone, is written again.
+ * Kept in memory only: after a restart every file is written once more.
+ */
+final class JobOutputDigests {
+
+    private static final JobOutputDigests instance = new JobOutputDigests();
+
+    private final ConcurrentMap<File, Output> outputs = new ConcurrentHashMap<>();
+
+    private static final class Output {
+        private final String digest;
+        private final long lastModified;
+        private final long length;
+
+        private Output(String digest, long lastModified, long length) {
+            this.digest = digest;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private JobOutputDigests() {
+    }
+
+    static JobOutputDigests getInstance() {
+        return instance;
+    }
+
+    static String digest(byte[] content) {
+        try {
+            StringBuilder result = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(content)) {
+                result.append(String.format("%02x", b & 0xff));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether the file was written from content with this digest and hasn't changed since.
+     */
+    boolean isCurrent(File file, String digest) {
+        Output output = outputs.get(file);
+        return output != null && output.digest.equals(digest)
+                && file.lastModified() == output.lastModified && file.length() == output.length;
+    }
+
+    /**
+     * Remembers that the file, as it is now, was written from content with this digest.
+     */
+    void record(File file, String digest) {
+        outputs.put(file, new Output(digest, file.lastModified(), file.length()));
+    }
+}
@@ -1,12 +1,5 @@
 package com.amcbridge.jenkins.plugins.job;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.nio.charset.Charset;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
@@ -14,7 +7,6 @@ public class JobSCM {
 
     public static final String ELEMENT_TAG = "scm";
     public static final String PARENT_ELEMENT_TAG = "project";
-    private static final Logger logger = LoggerFactory.getLogger(JobSCM.class);
 
     private JobSCM(){}
 
@@ -29,17 +21,12 @@ public class JobSCM {
         return doc;
     }
 
-    public static Document insertSCM(Document doc, String xml) {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder;
-        Node scm;
-        try(InputStream inputSCM = new ByteArrayInputStream(xml.getBytes(Charset.forName("UTF-8")))) {
-            docBuilder = docFactory.newDocumentBuilder();
-            scm = docBuilder.parse(inputSCM);
-            Node node = doc.importNode(scm.getChildNodes().item(0), true);
-            doc.getChildNodes().item(0).appendChild(node);
-        } catch (Exception e) {
-            logger.error("SCM error", e);
+    /**
+     * @param scm node created in the document, skipped if null
+     */
+    public static Document insertSCM(Document doc, Node scm) {
+        if (scm != null) {
+            doc.getChildNodes().item(0).appendChild(scm);
         }
         return doc;
     }
@@ -0,0 +1,70 @@
+package com.amcbridge.jenkins.plugins.job;
+
+import com.amcbridge.jenkins.plugins.serialization.XmlUtils;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Job templates parsed once and handed out as deep copies, so generating a job never reads a template
+ * from the disk unless the file changed since it was parsed.
+ */
+final class JobTemplateCache {
+
+    private static final JobTemplateCache instance = new JobTemplateCache();
+
+    private final ConcurrentMap<File, Template> templates = new ConcurrentHashMap<>();
+
+    private static final class Template {
+        private final Document document;
+        private final long lastModified;
+        private final long length;
+
+        private Template(Document document, long lastModified, long length) {
+            this.document = document;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private boolean isUpToDate(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        /**
+         * A DOM may change its own state while being read, so copies of one template are made one at a time.
+         */
+        private synchronized Document copy() {
+            return (Document) document.cloneNode(true);
+        }
+    }
+
+    private JobTemplateCache() {
+    }
+
+    static JobTemplateCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * A copy of the parsed template which the caller is free to modify.
+     */
+    Document get(File file) throws ParserConfigurationException, IOException, SAXException {
+        Template template = templates.get(file);
+        if (template == null || !template.isUpToDate(file)) {
+            template = parse(file);
+            templates.put(file, template);
+        }
+        return template.copy();
+    }
+
+    private synchronized Template parse(File file) throws ParserConfigurationException, IOException, SAXException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        return new Template(XmlUtils.parse(file), lastModified, length);
+    }
+}
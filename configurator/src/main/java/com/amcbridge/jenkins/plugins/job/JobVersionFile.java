@@ -30,10 +30,10 @@ public class JobVersionFile implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) {
+    public Node generateNode(BuildConfigurationModel config, Document xml) {
         DescriptionSetterPublisher dsp
                 = new DescriptionSetterPublisher(generateExpression(), StringUtils.EMPTY, StringUtils.EMPTY, StringUtils.EMPTY, false);
-        return JobManagerGenerator.convertToXML(dsp);
+        return JobManagerGenerator.convertToNode(dsp, xml);
     }
 
     @Override
@@ -11,17 +11,18 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.IOException;
 
 public class WsPluginHelper {
     private static final String XPATH_WS_CLEANUP_PLUGIN = "/project/buildWrappers/hudson.plugins.ws__cleanup.PreBuildCleanup";
 
+    private static final String XPATH_WS_CLEANUP_PLUGIN_PATTERNS = "/project/buildWrappers/hudson.plugins.ws__cleanup.PreBuildCleanup/patterns";
+
     private static final String XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE = "/project/buildWrappers/hudson.plugins.ws__cleanup.PreBuildCleanup/patterns/hudson.plugins.ws__cleanup.Pattern";
 
+    private static final String XPATH_WS_CLEANUP_PLUGIN_PATTERN = XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE + "/pattern";
+
     private WsPluginHelper() {
     }
 
@@ -50,8 +51,7 @@ public class WsPluginHelper {
 
     private static void insertWsCleanupPlugin(Document doc, BuildConfigurationModel config) throws IOException, SAXException, ParserConfigurationException, XPathExpressionException {
         Document jobTemplate = loadJobTemplate(config);
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        Node pluginNode = (Node) xPath.evaluate(XPATH_WS_CLEANUP_PLUGIN, jobTemplate, XPathConstants.NODE);
+        Node pluginNode = XPathExpressions.getNode(XPATH_WS_CLEANUP_PLUGIN, jobTemplate);
         Node buildWrappersNode = doc.getElementsByTagName("buildWrappers").item(0);
         pluginNode = doc.importNode(pluginNode, true);
         buildWrappersNode.appendChild(pluginNode);
@@ -59,9 +59,8 @@ public class WsPluginHelper {
 
     private static void insertWsExcludePattern(Document doc, BuildConfigurationModel config) throws IOException, SAXException, ParserConfigurationException, XPathExpressionException {
         Document jobTemplate = loadJobTemplate(config);
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        Node patternNodeTemplate = (Node) xPath.evaluate(XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE, jobTemplate, XPathConstants.NODE);
-        Node listOfPatternsNode = (Node) xPath.evaluate("/project/buildWrappers/hudson.plugins.ws__cleanup.PreBuildCleanup/patterns", doc, XPathConstants.NODE);
+        Node patternNodeTemplate = XPathExpressions.getNode(XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE, jobTemplate);
+        Node listOfPatternsNode = XPathExpressions.getNode(XPATH_WS_CLEANUP_PLUGIN_PATTERNS, doc);
         patternNodeTemplate = doc.importNode(patternNodeTemplate, true);
 
         listOfPatternsNode.appendChild(patternNodeTemplate);
@@ -79,13 +78,11 @@ public class WsPluginHelper {
     }
 
     private static Node getPluginNode(Document doc) throws XPathExpressionException {
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        return (Node) xPath.evaluate(XPATH_WS_CLEANUP_PLUGIN, doc, XPathConstants.NODE);
+        return XPathExpressions.getNode(XPATH_WS_CLEANUP_PLUGIN, doc);
     }
 
     private static boolean isExcludePatternIncluded(Document doc, String jobName) throws XPathExpressionException {
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        NodeList patternsList = (NodeList) xPath.evaluate(XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE, doc, XPathConstants.NODESET);
+        NodeList patternsList = XPathExpressions.getNodeList(XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE, doc);
 
         for (int i = 0; i < patternsList.getLength(); i++) {
             Node pattern = patternsList.item(i);
@@ -117,8 +114,7 @@ public class WsPluginHelper {
 
     static void setWsPluginJobName(Document doc, BuildConfigurationModel config) throws XPathExpressionException {
         if (isWsPluginIncluded(doc) && isExcludePatternIncluded(doc, config.getProjectName())) {
-            XPath xPath = XPathFactory.newInstance().newXPath();
-            Node patternWithName = (Node) xPath.evaluate(XPATH_WS_CLEANUP_PLUGIN_PATTERN_NODE + "/pattern", doc, XPathConstants.NODE);
+            Node patternWithName = XPathExpressions.getNode(XPATH_WS_CLEANUP_PLUGIN_PATTERN, doc);
             patternWithName.setTextContent(config.getProjectName() + ".xml");
             patternWithName.setNodeValue(config.getProjectName() + ".xml");
         }
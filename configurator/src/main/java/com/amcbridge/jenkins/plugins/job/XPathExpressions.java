@@ -0,0 +1,61 @@
+package com.amcbridge.jenkins.plugins.job;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiled forms of the constant XPath paths used to generate jobs. Compiled expressions are not thread-safe,
+ * so every thread compiles each path once and keeps its own copy. Meant for constant paths only: nodes that
+ * differ per project are reached by evaluating a relative path from their parent node.
+ */
+public final class XPathExpressions {
+
+    private static final ThreadLocal<Map<String, XPathExpression>> expressions = new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<XPath> xPath = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+
+    private XPathExpressions() {
+    }
+
+    public static XPathExpression get(String path) throws XPathExpressionException {
+        Map<String, XPathExpression> compiled = expressions.get();
+        XPathExpression expression = compiled.get(path);
+        if (expression == null) {
+            expression = xPath.get().compile(path);
+            compiled.put(path, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * @param item document or node the path is evaluated from
+     */
+    public static Node getNode(String path, Object item) throws XPathExpressionException {
+        return (Node) get(path).evaluate(item, XPathConstants.NODE);
+    }
+
+    /**
+     * @param item document or node the path is evaluated from
+     */
+    public static NodeList getNodeList(String path, Object item) throws XPathExpressionException {
+        return (NodeList) get(path).evaluate(item, XPathConstants.NODESET);
+    }
+}
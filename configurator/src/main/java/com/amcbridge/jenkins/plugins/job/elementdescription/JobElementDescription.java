@@ -1,6 +1,7 @@
 package com.amcbridge.jenkins.plugins.job.elementdescription;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import org.xml.sax.SAXException;
 
@@ -14,7 +15,12 @@ public interface JobElementDescription {
 
     String getParentElementTag();
 
-    String generateXML(BuildConfigurationModel config) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException;
+    /**
+     * Creates the element in the given job document, not yet attached to it.
+     *
+     * @return the element, or null if the configuration doesn't need one
+     */
+    Node generateNode(BuildConfigurationModel config, Document xml) throws ParserConfigurationException, XPathExpressionException, IOException, SAXException;
 
     void appendToXML(BuildConfigurationModel config, Document xml) throws ParserConfigurationException, XPathExpressionException, SAXException, IOException;
 }
@@ -4,24 +4,27 @@ import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import com.amcbridge.jenkins.plugins.job.elementdescription.JobElementDescription;
 import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
 import com.amcbridge.jenkins.plugins.job.JobSCM;
-import org.apache.commons.lang.StringUtils;
+import com.amcbridge.jenkins.plugins.job.XPathExpressions;
+import com.amcbridge.jenkins.plugins.models.ProjectToBuildModel;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.*;
+import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
 
 public class JobGitScm implements JobElementDescription {
 
-    private static final String XPATH_ALL_GIT_SCM = "//hudson.plugins.git.GitSCM";
+    // XPath has 1-based indexes
+    private static final String XPATH_FIRST_GIT_SCM = "//hudson.plugins.git.GitSCM[1]";
     private static final String XPATH_CONCRETE_GIT_SCM = "/scm/scms/hudson.plugins.git.GitSCM";
-    protected static final String XPATH_RELATIVE_GIT_URL = "/userRemoteConfigs/hudson.plugins.git.UserRemoteConfig/url";
-    protected static final String XPATH_RELATIVE_GIT_CREDENTIALS_ID = "/userRemoteConfigs/hudson.plugins.git.UserRemoteConfig/credentialsId";
-    protected static final String XPATH_RELATIVE_GIT_BRANCH_NAME = "/branches/hudson.plugins.git.BranchSpec/name";
-    protected static final String XPATH_RELATIVE_GIT_LOCAL_DIRECTORY_PATH = "/extensions/hudson.plugins.git.extensions.impl.RelativeTargetDirectory/relativeTargetDir";
+    protected static final String XPATH_RELATIVE_GIT_URL = "userRemoteConfigs/hudson.plugins.git.UserRemoteConfig/url";
+    protected static final String XPATH_RELATIVE_GIT_CREDENTIALS_ID = "userRemoteConfigs/hudson.plugins.git.UserRemoteConfig/credentialsId";
+    protected static final String XPATH_RELATIVE_GIT_BRANCH_NAME = "branches/hudson.plugins.git.BranchSpec/name";
+    protected static final String XPATH_RELATIVE_GIT_LOCAL_DIRECTORY_PATH = "extensions/hudson.plugins.git.extensions.impl.RelativeTargetDirectory/relativeTargetDir";
 
     private static final String TEMPLATE_PATH = "/plugins/build-configurator/job/scm/git.xml";
 
@@ -36,69 +39,61 @@ public class JobGitScm implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
 
         if (config.getProjectToBuild() == null) {
-            return StringUtils.EMPTY;
+            return null;
         }
 
         Document doc = JobManagerGenerator.loadTemplate(TEMPLATE_PATH);
         setProjectsConfigs(doc, config);
-        return JobManagerGenerator.documentToXML(doc);
+        return xml.importNode(doc.getDocumentElement(), true);
     }
 
     protected void setProjectsConfigs(Document doc, BuildConfigurationModel config) throws XPathExpressionException {
 
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        XPathExpression exp;
-        // XPath has 1-based indexes. So start index is 1;
-        String nodeToCopyExpression = XPATH_ALL_GIT_SCM + "[1]";
         int projectsQuantity = config.getProjectToBuild().size();
-        int nodesToCopyQuantity = projectsQuantity - 1;
 
         // copy default scm node with empty values
-        for (int nodeIndex = 0; nodeIndex < nodesToCopyQuantity; nodeIndex++) {
-            exp = xPath.compile(nodeToCopyExpression);
-            Node gitPlNode = (Node) exp.evaluate(doc, XPathConstants.NODE);
-            Node copyNode = gitPlNode.cloneNode(true);
-            gitPlNode.getParentNode().appendChild(copyNode);
+        Node gitPlNode = XPathExpressions.getNode(XPATH_FIRST_GIT_SCM, doc);
+        for (int nodeIndex = 1; nodeIndex < projectsQuantity; nodeIndex++) {
+            gitPlNode.getParentNode().appendChild(gitPlNode.cloneNode(true));
         }
 
-
+        NodeList scmNodes = XPathExpressions.getNodeList(XPATH_CONCRETE_GIT_SCM, doc);
         for (int projectIndex = 0; projectIndex < projectsQuantity; projectIndex++) {
 
-            String scmPath = XPATH_CONCRETE_GIT_SCM + "[" + (projectIndex + 1) + "]";
+            Node scmNode = scmNodes.item(projectIndex);
+            ProjectToBuildModel project = config.getProjectToBuild().get(projectIndex);
 
             //branch name
-            setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_BRANCH_NAME, config.getProjectToBuild().get(projectIndex).getBranchName(), doc);
+            setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_BRANCH_NAME, project.getBranchName());
 
             //url
-            setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_URL, config.getProjectToBuild().get(projectIndex).getProjectUrl(), doc);
+            setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_URL, project.getProjectUrl());
 
             //credentials
-            setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_CREDENTIALS_ID, config.getProjectToBuild().get(projectIndex).getCredentials(), doc);
+            setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_CREDENTIALS_ID, project.getCredentials());
 
             //local folder
-            setSCMNodeValue(scmPath + XPATH_RELATIVE_GIT_LOCAL_DIRECTORY_PATH, config.getProjectToBuild().get(projectIndex).getLocalDirectoryPath(), doc);
-
+            setSCMNodeValue(scmNode, XPATH_RELATIVE_GIT_LOCAL_DIRECTORY_PATH, project.getLocalDirectoryPath());
 
         }
 
     }
 
-    protected void setSCMNodeValue(String nodePath, String value, Document doc) throws XPathExpressionException {
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        XPathExpression exp;
-        exp = xPath.compile(nodePath);
-        Node branchNode = (Node) exp.evaluate(doc, XPathConstants.NODE);
-        branchNode.getTextContent();
-        branchNode.setTextContent(value);
+    /**
+     * @param relativePath path of the node to set, relative to the scm node
+     */
+    protected void setSCMNodeValue(Node scmNode, String relativePath, String value) throws XPathExpressionException {
+        Node valueNode = XPathExpressions.getNode(relativePath, scmNode);
+        valueNode.setTextContent(value);
     }
 
     @Override
     public void appendToXML(BuildConfigurationModel config, Document doc) throws XPathExpressionException, ParserConfigurationException, SAXException, IOException {
         JobSCM.removeSCM(doc);
-        JobSCM.insertSCM(doc, generateXML(config));
+        JobSCM.insertSCM(doc, generateNode(config, doc));
     }
 
 }
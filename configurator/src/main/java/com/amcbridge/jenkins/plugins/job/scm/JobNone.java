@@ -1,14 +1,10 @@
 package com.amcbridge.jenkins.plugins.job.scm;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import hudson.scm.NullSCM;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
-import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
 import com.amcbridge.jenkins.plugins.job.JobSCM;
 import com.amcbridge.jenkins.plugins.job.elementdescription.JobElementDescription;
 
@@ -27,23 +23,19 @@ public class JobNone implements JobElementDescription {
     }
 
     @Override
-    public String generateXML(BuildConfigurationModel config) throws ParserConfigurationException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) {
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.newDocument();
-        doc.appendChild(doc.createElement(JobSCM.ELEMENT_TAG));
-        Element scm = (Element) doc.getElementsByTagName(JobSCM.ELEMENT_TAG).item(0);
+        Element scm = xml.createElement(JobSCM.ELEMENT_TAG);
         NullSCM nullSCM = new NullSCM();
         String value = nullSCM.getType();
         scm.setAttribute(ATTRIBUTE, value);
 
-        return JobManagerGenerator.documentToXML(doc);
+        return scm;
     }
 
     @Override
-    public void appendToXML(BuildConfigurationModel config, Document doc) throws ParserConfigurationException {
+    public void appendToXML(BuildConfigurationModel config, Document doc) {
         JobSCM.removeSCM(doc);
-        JobSCM.insertSCM(doc, generateXML(config));
+        JobSCM.insertSCM(doc, generateNode(config, doc));
     }
 }
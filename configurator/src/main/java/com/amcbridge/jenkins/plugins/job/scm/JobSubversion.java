@@ -1,16 +1,14 @@
 package com.amcbridge.jenkins.plugins.job.scm;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import com.amcbridge.jenkins.plugins.models.BuildConfigurationModel;
 import com.amcbridge.jenkins.plugins.job.JobManagerGenerator;
 import com.amcbridge.jenkins.plugins.job.JobSCM;
 import com.amcbridge.jenkins.plugins.job.elementdescription.JobElementDescription;
+import com.amcbridge.jenkins.plugins.serialization.XmlUtils;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
@@ -33,24 +31,16 @@ public class JobSubversion implements JobElementDescription {
         return JobSCM.PARENT_ELEMENT_TAG;
     }
     @Override
-    public String generateXML(BuildConfigurationModel config) throws ParserConfigurationException, IOException, SAXException {
+    public Node generateNode(BuildConfigurationModel config, Document xml) throws ParserConfigurationException, IOException, SAXException {
 
         if (config.getProjectToBuild() == null) {
-            return StringUtils.EMPTY;
+            return null;
         }
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-
-
         Document doc = JobManagerGenerator.loadTemplate(TEMPLATE_PATH);
         Node node;
         Node importedNode;
-        if(docBuilder == null){
-            throw new NullPointerException("Document builder is null");
-        }
-        Document module = docBuilder.newDocument();
+        Document module = XmlUtils.newDocument();
         if (doc.getElementsByTagName(MODULE_TAG).getLength() > 0) {
             module.appendChild(module.importNode(doc.getElementsByTagName(MODULE_TAG).item(0), true));
         }
@@ -98,13 +88,13 @@ public class JobSubversion implements JobElementDescription {
             node.appendChild(importedNode);
         }
 
-        return JobManagerGenerator.documentToXML(doc);
+        return xml.importNode(doc.getDocumentElement(), true);
     }
 
     @Override
     public void appendToXML(BuildConfigurationModel config, Document doc) throws ParserConfigurationException, IOException, SAXException {
         JobSCM.removeSCM(doc);
-        JobSCM.insertSCM(doc, generateXML(config));
+        JobSCM.insertSCM(doc, generateNode(config, doc));
     }
 
     private Document setModuleValue(Document module, String url, String folder) {
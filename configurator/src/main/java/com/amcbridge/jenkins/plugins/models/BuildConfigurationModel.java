@@ -26,7 +26,7 @@ public class BuildConfigurationModel {
     private ConfigurationState state;
     private List<ProjectToBuildModel> projectToBuild;
     private String[] scripts;
-    private Map<String, Boolean> buildMachineConfiguration;
+    private NodeSelection buildMachineConfiguration;
     private String comments;
     private List<UserAccessModel> userWithAccess;
     private boolean cleanWorkspace;
@@ -99,7 +99,7 @@ public class BuildConfigurationModel {
     }
 
     public void setBuildMachineConfiguration(Map<String, Boolean> buildMachineConfiguration) {
-        this.buildMachineConfiguration = buildMachineConfiguration;
+        this.buildMachineConfiguration = NodeSelection.of(buildMachineConfiguration);
     }
 
     public void setEmail(String email) {
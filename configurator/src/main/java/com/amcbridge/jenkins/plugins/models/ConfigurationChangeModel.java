@@ -0,0 +1,68 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationChangeType;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * One entry of the configuration change journal.
+ */
+public class ConfigurationChangeModel {
+
+    private long sequence;
+    private long timestamp;
+    private String name;
+    private ConfigurationChangeType type;
+    private String user;
+    private Set<String> usersWithAccess;
+
+    public ConfigurationChangeModel(long sequence, long timestamp, String name, ConfigurationChangeType type,
+                                    String user) {
+        this(sequence, timestamp, name, type, user, Collections.<String>emptySet());
+    }
+
+    /**
+     * @param usersWithAccess users who could see the configuration when it changed, recorded for deletions
+     *                        since a deleted configuration can't be asked who may see it
+     */
+    public ConfigurationChangeModel(long sequence, long timestamp, String name, ConfigurationChangeType type,
+                                    String user, Set<String> usersWithAccess) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.name = name;
+        this.type = type;
+        this.user = user;
+        this.usersWithAccess = usersWithAccess;
+    }
+
+    /**
+     * Number of the change, greater than the number of every earlier change.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ConfigurationChangeType getType() {
+        return type;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * Whether the user was recorded as one who could see the configuration.
+     */
+    public boolean isRecordedWithAccess(String userId) {
+        return usersWithAccess.contains(userId);
+    }
+}
@@ -0,0 +1,28 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import java.util.List;
+
+/**
+ * One page of the configuration change journal and the sequence number to continue from.
+ */
+public class ConfigurationChangesPageModel {
+
+    private final List<ConfigurationChangeModel> changes;
+    private final long lastSequence;
+
+    public ConfigurationChangesPageModel(List<ConfigurationChangeModel> changes, long lastSequence) {
+        this.changes = changes;
+        this.lastSequence = lastSequence;
+    }
+
+    public List<ConfigurationChangeModel> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Number of the last change looked at, visible or not; the next page starts after it.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
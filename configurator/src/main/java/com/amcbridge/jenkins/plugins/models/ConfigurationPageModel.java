@@ -0,0 +1,37 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import java.util.List;
+
+/**
+ * One page of the configurations table and the number of configurations matching the query.
+ */
+public class ConfigurationPageModel {
+
+    private final List<DashboardRowModel> rows;
+    private final int totalCount;
+    private final int offset;
+    private final int limit;
+
+    public ConfigurationPageModel(List<DashboardRowModel> rows, int totalCount, int offset, int limit) {
+        this.rows = rows;
+        this.totalCount = totalCount;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public List<DashboardRowModel> getRows() {
+        return rows;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
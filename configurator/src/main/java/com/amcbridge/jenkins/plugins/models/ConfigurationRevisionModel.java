@@ -0,0 +1,37 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+
+/**
+ * Description of one saved version of a configuration.
+ */
+public class ConfigurationRevisionModel {
+
+    private int number;
+    private long timestamp;
+    private String user;
+    private ConfigurationState state;
+
+    public ConfigurationRevisionModel(int number, long timestamp, String user, ConfigurationState state) {
+        this.number = number;
+        this.timestamp = timestamp;
+        this.user = user;
+        this.state = state;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public ConfigurationState getState() {
+        return state;
+    }
+}
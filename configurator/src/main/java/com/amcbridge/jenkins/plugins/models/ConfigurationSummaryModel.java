@@ -0,0 +1,177 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+import com.amcbridge.jenkins.plugins.enums.SearchField;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The part of a configuration shown in list views, small enough to keep for every configuration.
+ */
+public class ConfigurationSummaryModel {
+
+    private final String projectName;
+    private final ConfigurationState state;
+    private final String creator;
+    private final String date;
+    private final boolean jobUpdate;
+    private final String scm;
+    private final Set<String> repositories;
+    private final Set<String> credentials;
+    private final Set<String> builders;
+    private final Set<String> platforms;
+    private final Set<String> nodes;
+    private final Set<String> usersWithAccess;
+
+    private ConfigurationSummaryModel(BuildConfigurationModel config) {
+        projectName = config.getProjectName();
+        state = config.getState();
+        creator = intern(config.getCreator());
+        date = config.getDate();
+        jobUpdate = Boolean.TRUE.equals(config.getJobUpdate());
+        scm = intern(config.getScm());
+
+        Set<String> repositorySet = new HashSet<>();
+        Set<String> credentialSet = new HashSet<>();
+        Set<String> builderSet = new HashSet<>();
+        Set<String> platformSet = new HashSet<>();
+        if (config.getProjectToBuild() != null) {
+            for (ProjectToBuildModel project : config.getProjectToBuild()) {
+                addIfPresent(repositorySet, project.getProjectUrl());
+                addIfPresent(credentialSet, project.getCredentials());
+                if (project.getBuilders() == null) {
+                    continue;
+                }
+                for (BuilderConfigModel builder : project.getBuilders()) {
+                    addIfPresent(builderSet, builder.getBuilder());
+                    addIfPresent(platformSet, builder.getPlatform());
+                }
+            }
+        }
+        repositories = compact(repositorySet);
+        credentials = compact(credentialSet);
+        builders = compact(builderSet);
+        platforms = compact(platformSet);
+
+        Set<String> nodeSet = new HashSet<>();
+        if (config.getBuildMachineConfiguration() != null) {
+            for (Map.Entry<String, Boolean> node : config.getBuildMachineConfiguration().entrySet()) {
+                if (Boolean.TRUE.equals(node.getValue())) {
+                    nodeSet.add(node.getKey().intern());
+                }
+            }
+        }
+        nodes = compact(nodeSet);
+
+        Set<String> userSet = new HashSet<>();
+        if (config.getUserWithAccess() != null) {
+            for (UserAccessModel user : config.getUserWithAccess()) {
+                if (user != null && user.getUserName() != null) {
+                    userSet.add(user.getUserName().intern());
+                }
+            }
+        }
+        usersWithAccess = compact(userSet);
+    }
+
+    public static ConfigurationSummaryModel of(BuildConfigurationModel config) {
+        return new ConfigurationSummaryModel(config);
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null && !value.isEmpty()) {
+            values.add(value.intern());
+        }
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+
+    /**
+     * Most configurations use one repository, builder and node, so small sets are stored without a hash table.
+     */
+    private static Set<String> compact(Set<String> values) {
+        switch (values.size()) {
+            case 0:
+                return Collections.emptySet();
+            case 1:
+                return Collections.singleton(values.iterator().next());
+            default:
+                return Collections.unmodifiableSet(values);
+        }
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public ConfigurationState getState() {
+        return state;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public boolean getJobUpdate() {
+        return jobUpdate;
+    }
+
+    public String getScm() {
+        return scm;
+    }
+
+    public Set<String> getRepositories() {
+        return repositories;
+    }
+
+    public Set<String> getCredentials() {
+        return credentials;
+    }
+
+    public Set<String> getBuilders() {
+        return builders;
+    }
+
+    public Set<String> getPlatforms() {
+        return platforms;
+    }
+
+    /**
+     * Names of the nodes selected for the build.
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public Set<String> getUsersWithAccess() {
+        return usersWithAccess;
+    }
+
+    public Set<String> getValues(SearchField field) {
+        switch (field) {
+            case SCM:
+                return scm != null ? Collections.singleton(scm) : Collections.<String>emptySet();
+            case REPOSITORY:
+                return repositories;
+            case BUILDER:
+                return builders;
+            case PLATFORM:
+                return platforms;
+            case NODE:
+                return nodes;
+            case CREDENTIALS:
+                return credentials;
+            default:
+                return Collections.emptySet();
+        }
+    }
+}
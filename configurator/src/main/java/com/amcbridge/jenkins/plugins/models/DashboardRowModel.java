@@ -0,0 +1,64 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import com.amcbridge.jenkins.plugins.enums.ConfigurationState;
+
+/**
+ * One row of the configurations table, with everything the page needs precomputed.
+ */
+public class DashboardRowModel {
+
+    private final String projectName;
+    private final ConfigurationState state;
+    private final String date;
+    private final String fullNameCreator;
+    private final boolean jobUpdate;
+    private final boolean currentUserHasAccess;
+    private final boolean jobCreated;
+
+    public DashboardRowModel(ConfigurationSummaryModel config, String fullNameCreator,
+                             boolean currentUserHasAccess, boolean jobCreated) {
+        this.projectName = config.getProjectName();
+        this.state = config.getState();
+        this.date = config.getDate();
+        this.fullNameCreator = fullNameCreator;
+        this.jobUpdate = config.getJobUpdate();
+        this.currentUserHasAccess = currentUserHasAccess;
+        this.jobCreated = jobCreated;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public ConfigurationState getState() {
+        return state;
+    }
+
+    public String getStateName() {
+        return state != null ? state.toString() : null;
+    }
+
+    public String getStateCSSClassName() {
+        return state != null ? state.getCSSClassName() : null;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getFullNameCreator() {
+        return fullNameCreator;
+    }
+
+    public boolean getJobUpdate() {
+        return jobUpdate;
+    }
+
+    public boolean isCurrentUserHasAccess() {
+        return currentUserHasAccess;
+    }
+
+    public boolean isJobCreated() {
+        return jobCreated;
+    }
+}
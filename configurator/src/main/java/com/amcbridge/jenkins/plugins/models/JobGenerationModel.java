@@ -0,0 +1,66 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import java.util.Map;
+
+/**
+ * Progress of generating the jobs of many configurations at once.
+ */
+public class JobGenerationModel {
+
+    private long id;
+    private long startTime;
+    private int total;
+    private int done;
+    private int failed;
+    private Map<String, String> jobs;
+    private Map<String, String> failures;
+
+    public JobGenerationModel(long id, long startTime, int total, int done, int failed, Map<String, String> jobs,
+                              Map<String, String> failures) {
+        this.id = id;
+        this.startTime = startTime;
+        this.total = total;
+        this.done = done;
+        this.failed = failed;
+        this.jobs = jobs;
+        this.failures = failures;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getDone() {
+        return done;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public boolean isFinished() {
+        return done + failed == total;
+    }
+
+    /**
+     * State of every configuration's job, by configuration name.
+     */
+    public Map<String, String> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Why a job was not generated, by configuration name.
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+}
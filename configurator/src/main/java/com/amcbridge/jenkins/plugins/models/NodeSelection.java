@@ -0,0 +1,184 @@
+package com.amcbridge.jenkins.plugins.models;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Read-only map of node name to whether the node is selected for the build. Node names are numbered
+ * once per JVM, so each selection is a single bit set, two bits per node: listed and selected.
+ * Stored in the same XML form as the {@code HashMap} it replaces.
+ */
+public final class NodeSelection extends AbstractMap<String, Boolean> {
+
+    private static final List<String> nodeNames = new CopyOnWriteArrayList<>();
+    private static final ConcurrentMap<String, Integer> nodeIndexes = new ConcurrentHashMap<>();
+
+    private final BitSet bits;
+    private final int size;
+
+    private NodeSelection(BitSet bits) {
+        this.bits = bits;
+        this.size = bits.cardinality() - countSelected(bits);
+    }
+
+    /**
+     * Returns the map as a selection, or null if it is null.
+     */
+    public static NodeSelection of(Map<String, Boolean> nodes) {
+        if (nodes == null || nodes instanceof NodeSelection) {
+            return (NodeSelection) nodes;
+        }
+        BitSet bits = new BitSet();
+        for (Map.Entry<String, Boolean> node : nodes.entrySet()) {
+            set(bits, node.getKey(), Boolean.TRUE.equals(node.getValue()));
+        }
+        return new NodeSelection(bits);
+    }
+
+    @Override
+    public Boolean get(Object name) {
+        Integer index = nodeIndexes.get(name);
+        if (index == null || !bits.get(2 * index)) {
+            return null;
+        }
+        return bits.get(2 * index + 1);
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return get(name) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Boolean>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Boolean>>() {
+            @Override
+            public Iterator<Map.Entry<String, Boolean>> iterator() {
+                return new Iterator<Map.Entry<String, Boolean>>() {
+                    private int next = bits.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Boolean> next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next / 2;
+                        next = bits.nextSetBit(2 * index + 2);
+                        return new SimpleImmutableEntry<>(nodeNames.get(index), bits.get(2 * index + 1));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static void set(BitSet bits, String name, boolean selected) {
+        int index = indexOf(name);
+        bits.set(2 * index);
+        bits.set(2 * index + 1, selected);
+    }
+
+    private static int indexOf(String name) {
+        Integer index = nodeIndexes.get(name);
+        if (index != null) {
+            return index;
+        }
+        synchronized (nodeNames) {
+            index = nodeIndexes.get(name);
+            if (index == null) {
+                nodeNames.add(name.intern());
+                index = nodeNames.size() - 1;
+                nodeIndexes.put(nodeNames.get(index), index);
+            }
+            return index;
+        }
+    }
+
+    private static int countSelected(BitSet bits) {
+        int selected = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            if (i % 2 == 1) {
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Writes and reads the selection as a map of {@code <entry><string/><boolean/></entry>} elements.
+     * Found by XStream2 next to the class it converts.
+     */
+    public static final class ConverterImpl implements Converter {
+
+        @Override
+        public boolean canConvert(Class type) {
+            return type == NodeSelection.class;
+        }
+
+        @Override
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            for (Map.Entry<String, Boolean> node : ((NodeSelection) source).entrySet()) {
+                writer.startNode("entry");
+                writer.startNode("string");
+                writer.setValue(node.getKey());
+                writer.endNode();
+                writer.startNode("boolean");
+                writer.setValue(node.getValue().toString());
+                writer.endNode();
+                writer.endNode();
+            }
+        }
+
+        @Override
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            Map<String, Boolean> nodes = new LinkedHashMap<>();
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                reader.moveDown();
+                String name = reader.getValue();
+                reader.moveUp();
+                reader.moveDown();
+                Boolean selected = Boolean.valueOf(reader.getValue());
+                reader.moveUp();
+                reader.moveUp();
+                nodes.put(name, selected);
+            }
+            return of(nodes);
+        }
+    }
+}
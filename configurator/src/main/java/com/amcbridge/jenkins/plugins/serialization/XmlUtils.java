@@ -0,0 +1,171 @@
+package com.amcbridge.jenkins.plugins.serialization;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Parses and writes XML with factories created once and a document builder and transformer kept per thread.
+ * Parsing never reads external DTDs or entities, so a document can't make it reach the file system or the network.
+ * Kept the same in the plugin and the build server.
+ */
+public final class XmlUtils {
+
+    private static final String ACCESS_EXTERNAL_DTD = "http://javax.xml.XMLConstants/property/accessExternalDTD";
+    private static final String ACCESS_EXTERNAL_SCHEMA = "http://javax.xml.XMLConstants/property/accessExternalSchema";
+    private static final String ACCESS_EXTERNAL_STYLESHEET = "http://javax.xml.XMLConstants/property/accessExternalStylesheet";
+
+    private static final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+    private static final TransformerFactory transformerFactory = createTransformerFactory();
+
+    private static final EntityResolver noExternalEntities = new EntityResolver() {
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            return new InputSource(new StringReader(""));
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                DocumentBuilder builder;
+                synchronized (documentBuilderFactory) {
+                    builder = documentBuilderFactory.newDocumentBuilder();
+                }
+                builder.setEntityResolver(noExternalEntities);
+                return builder;
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Transformer> transformer = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            try {
+                synchronized (transformerFactory) {
+                    return transformerFactory.newTransformer();
+                }
+            } catch (TransformerConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private XmlUtils() {
+    }
+
+    public static Document newDocument() {
+        return documentBuilder.get().newDocument();
+    }
+
+    public static Document parse(File file) throws SAXException, IOException {
+        return getDocumentBuilder().parse(file);
+    }
+
+    public static Document parse(InputStream input) throws SAXException, IOException {
+        return getDocumentBuilder().parse(input);
+    }
+
+    public static Document parse(String xml) throws SAXException, IOException {
+        return getDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+
+    /**
+     * The node as a string, without the XML declaration.
+     */
+    public static String toXml(Node node) throws TransformerException {
+        StringWriter writer = new StringWriter();
+        transform(node, new StreamResult(writer), true);
+        return writer.toString();
+    }
+
+    /**
+     * Writes the node, with the XML declaration, to the result.
+     */
+    public static void write(Node node, Result result) throws TransformerException {
+        transform(node, result, false);
+    }
+
+    private static void transform(Node node, Result result, boolean omitDeclaration) throws TransformerException {
+        Transformer current = transformer.get();
+        current.reset();
+        current.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, omitDeclaration ? "yes" : "no");
+        current.transform(new DOMSource(node), result);
+    }
+
+    private static DocumentBuilder getDocumentBuilder() {
+        DocumentBuilder builder = documentBuilder.get();
+        builder.reset();
+        builder.setEntityResolver(noExternalEntities);
+        return builder;
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        setFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        setAttribute(factory, ACCESS_EXTERNAL_DTD);
+        setAttribute(factory, ACCESS_EXTERNAL_SCHEMA);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    private static TransformerFactory createTransformerFactory() {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (TransformerConfigurationException e) {
+            // not supported by this implementation
+        }
+        for (String attribute : new String[]{ACCESS_EXTERNAL_DTD, ACCESS_EXTERNAL_STYLESHEET}) {
+            try {
+                factory.setAttribute(attribute, "");
+            } catch (IllegalArgumentException e) {
+                // not supported by this implementation
+            }
+        }
+        return factory;
+    }
+
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            // not supported by this parser
+        }
+    }
+
+    private static void setAttribute(DocumentBuilderFactory factory, String attribute) {
+        try {
+            factory.setAttribute(attribute, "");
+        } catch (IllegalArgumentException e) {
+            // not supported by this parser
+        }
+    }
+}
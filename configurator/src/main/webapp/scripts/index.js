@@ -1,5 +1,8 @@
 var nameAction;
 var isAdmin;
+var isAdminister;
+var pageSize = 50;
+var pageQuery = {offset: 0, sortBy: "name", descending: false};
 
 
 function setDeletion(name)
@@ -41,12 +44,48 @@ function OkReject()
             case("setDeletion"):{buildConfiguration.setForDeletion(mas[0], function(t){location.reload();}); break;}
             case("deletePermanently"):{buildConfiguration.deleteConfigurationPermanently(mas[0], function(t){location.reload();});break;}
             case("restore"):{buildConfiguration.restoreConfiguration(mas[0], function(t){location.reload();});break;}
-            case("createJob"):{buildConfiguration.createJob(mas[0], function(t){location.reload();}); break;}
-            case("deleteJob"):{buildConfiguration.deleteJob(mas[0], function(t){location.reload();}); break;}
+            case("createJob"):{buildConfiguration.createJob(mas[0], function(t){waitForJobTask(t.responseObject());}); break;}
+            case("deleteJob"):{buildConfiguration.deleteJob(mas[0], function(t){waitForJobTask(t.responseObject());}); break;}
+            case("reload"):{location.reload(); break;}
         }
     }
 }
 
+// job creation and deletion run in the background, the page is reloaded once they are done
+function waitForJobTask(ticket)
+{
+    if (ticket == null || ticket < 0) {
+        showJobTaskFailure("The job task could not be started.");
+        return;
+    }
+    buildConfiguration.getJobGenerationStatus(ticket, function(t) {
+        var status = t.responseObject();
+        if (status == null) {
+            location.reload();
+        } else if (!status.finished) {
+            setTimeout(function() { waitForJobTask(ticket); }, 1000);
+        } else if (status.failed > 0) {
+            var reasons = [];
+            for (var name in status.failures) {
+                reasons.push(name + ": " + status.failures[name]);
+            }
+            showJobTaskFailure("The job task failed. " + reasons.join("; "));
+        } else {
+            location.reload();
+        }
+    });
+}
+
+// the page is reloaded when the message is closed
+function showJobTaskFailure(message)
+{
+    document.getElementById("rejectDiv").className = "reject-div";
+    document.getElementById("overlay").className = "overlay";
+    document.getElementById("CancelReject").className = "div-none";
+    document.getElementById("helpReject").textContent = message;
+    nameAction = "?reload";
+}
+
 function CancelReject()
 {
     document.getElementById("overlay").className = "div-none";
@@ -130,4 +169,109 @@ function isCopyNameCorrect(clickSubmit) {
             }
     });
     return false;
-}
\ No newline at end of file
+}
+
+jQuery(function() {
+    if (jQuery('#configurationRows').length == 0) {
+        return;
+    }
+    jQuery('th.sortable').click(function() {
+        var sortBy = jQuery(this).attr('data-sort');
+        pageQuery.descending = pageQuery.sortBy == sortBy ? !pageQuery.descending : false;
+        pageQuery.sortBy = sortBy;
+        loadPage(0);
+    });
+    jQuery('.configuration-filter').change(function() {
+        loadPage(0);
+    });
+    loadPage(0);
+});
+
+function loadPreviousPage() {
+    loadPage(Math.max(0, pageQuery.offset - pageSize));
+}
+
+function loadNextPage() {
+    loadPage(pageQuery.offset + pageSize);
+}
+
+function loadPage(offset) {
+    pageQuery.offset = offset;
+    jQuery('th.sortable').removeClass('sorted-ascending sorted-descending');
+    jQuery('th[data-sort="' + pageQuery.sortBy + '"]').addClass(pageQuery.descending ? 'sorted-descending' : 'sorted-ascending');
+    buildConfiguration.getConfigurationsPage(offset, pageSize, pageQuery.sortBy, pageQuery.descending,
+        jQuery('#filterState').val(), jQuery('#filterScm').val(), jQuery('#filterBuilder').val(),
+        jQuery('#filterNode').val(), function(t) {
+            renderPage(t.responseObject());
+        });
+}
+
+function renderPage(page) {
+    var tbody = jQuery('#configurationRows');
+    tbody.empty();
+    for (var i = 0; i < page.rows.length; i++) {
+        tbody.append(createRow(page.rows[i]));
+    }
+    pageQuery.offset = page.offset;
+    var last = page.offset + page.rows.length;
+    jQuery('#pageInfo').text(page.totalCount == 0 ? 'No configurations'
+        : (page.offset + 1) + ' - ' + last + ' of ' + page.totalCount);
+    jQuery('#previousPage').prop('disabled', page.offset == 0);
+    jQuery('#nextPage').prop('disabled', last >= page.totalCount);
+}
+
+function createLink(cssClass, href, text) {
+    return jQuery('<a/>').addClass(cssClass).attr('href', href).text(text);
+}
+
+function createRow(row) {
+    var name = row.projectName;
+    var state = row.stateName;
+    var tr = jQuery('<tr height="25"/>');
+
+    tr.append(jQuery('<td class="projectName"/>').append(jQuery('<a/>')
+        .attr('href', row.jobCreated ? '../job/' + encodeURIComponent(name) : '#').text(name)));
+    tr.append(jQuery('<td class="state"/>').append(jQuery('<label/>')
+        .addClass(row.stateCSSClassName).attr('id', state).text(state)));
+    tr.append(jQuery('<td class="state"/>').text(row.date));
+
+    var actions = jQuery('<td/>');
+    if (state != 'Approved' && state != 'Rejected' && isAdmin) {
+        if (state == 'For Deletion' && isAdminister) {
+            actions.append(createLink('approve-reject-link', '#', 'Delete configuration permanently').attr('name', name)
+                .click(function() { deletePermanently(name); return false; }));
+            actions.append(' ');
+            actions.append(createLink('approve-reject-link', '#', 'Restore').attr('name', name)
+                .click(function() { restore(name); return false; }));
+        }
+        if (state != 'For Deletion') {
+            actions.append(createLink('approve-reject-link', 'create?name=' + encodeURIComponent(name) + '&type=ApproveReject', 'Approve/Reject'));
+        }
+    }
+    if (state == 'Approved' && isAdminister && !row.jobUpdate) {
+        actions.append(' ');
+        actions.append(createLink('approve-reject-link', '#', row.jobCreated ? 'Update Job' : 'Create Job').attr('name', name)
+            .click(function() { createJob(name); return false; }));
+    }
+    if (isAdminister && row.jobCreated) {
+        actions.append(' ');
+        actions.append(createLink('edit-link', '#', 'Delete Job').attr('name', 'delete_' + name)
+            .click(function() { deleteJob('delete_' + name); return false; }));
+    }
+    if ((row.currentUserHasAccess || isAdminister) && state != 'For Deletion') {
+        actions.append(' ');
+        actions.append(createLink('edit-link', 'create?name=' + encodeURIComponent(name) + '&type=edit', 'Edit'));
+        actions.append(' ');
+        actions.append(createLink('delete-link', '#', 'Delete').attr('name', name)
+            .click(function() { setDeletion(name); return false; }));
+    }
+    if (!row.currentUserHasAccess && state == 'Approved' && isAdminister) {
+        actions.append(' ');
+        actions.append(createLink('edit-link', 'create?name=' + encodeURIComponent(name) + '&type=view', 'View'));
+    }
+    actions.append(' ');
+    actions.append(createLink('edit-link', '#', 'Copy').click(function() { copyConfiguration(name); return false; }));
+    tr.append(actions);
+    tr.append(jQuery('<td class="state"/>').text(row.fullNameCreator));
+    return tr;
+}